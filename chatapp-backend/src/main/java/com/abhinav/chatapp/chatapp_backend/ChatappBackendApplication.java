@@ -2,8 +2,10 @@ package com.abhinav.chatapp.chatapp_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChatappBackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,84 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+/**
+ * Connects the local simple broker to the {@link ClusterMessageBus}. Messages that
+ * local code sends to {@code /topic/**} (chat broadcasts, presence deltas) are
+ * published to the other nodes; envelopes from other nodes are fed into the local
+ * broker channel, which hands them to this node's subscribers. Without a bus bean,
+ * or in relay mode where the external broker fans out topics itself, the bridge does
+ * nothing. Envelopes for other destinations belong to other bus users such as
+ * ClusterPresenceReplicator and are ignored.
+ */
+@Component
+@Slf4j
+public class ClusterBrokerBridge implements ChannelInterceptor {
+
+    static final String ORIGIN_HEADER = "clusterOrigin";
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    private final ClusterMessageBus bus;
+    private final MessageChannel brokerChannel;
+
+    public ClusterBrokerBridge(ObjectProvider<ClusterMessageBus> bus,
+                               @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                               @Value("${app.cluster.mode:none}") String clusterMode) {
+        this.bus = "relay".equals(clusterMode) ? null : bus.getIfAvailable();
+        this.brokerChannel = brokerChannel;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (bus != null) {
+            bus.subscribe(this::receive);
+            log.info("Broadcasting {}** across the cluster as node {}", TOPIC_PREFIX, bus.nodeId());
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (bus == null || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || destination == null || !destination.startsWith(TOPIC_PREFIX)
+                || headers.containsKey(ORIGIN_HEADER)) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        bus.publish(new ClusterEnvelope(bus.nodeId(), destination,
+                contentType != null ? contentType.toString() : null, payload));
+        return message;
+    }
+
+    private void receive(ClusterEnvelope envelope) {
+        if (bus.nodeId().equals(envelope.originNodeId()) || !envelope.destination().startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(envelope.destination());
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, envelope.originNodeId());
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+    }
+}
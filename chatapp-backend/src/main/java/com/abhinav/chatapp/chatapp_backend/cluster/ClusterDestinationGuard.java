@@ -0,0 +1,26 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps clients off the node-to-node topic of {@link RelayClusterMessageBus}: it lives
+ * under {@code /topic} so the relay forwards it, but a client subscribing could read
+ * every node's presence state and one sending could forge it.
+ */
+@Component
+public class ClusterDestinationGuard implements ChannelInterceptor {
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination != null && destination.startsWith(RelayClusterMessageBus.DESTINATION_PREFIX)) {
+            throw new MessageDeliveryException(message, destination + " is internal to the cluster");
+        }
+        return message;
+    }
+}
@@ -0,0 +1,5 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+//an already serialized broker message travelling between nodes
+public record ClusterEnvelope(String originNodeId, String destination, String contentType, byte[] payload) {
+}
@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Inter-node fan-out for broker destinations. Implementations deliver every
+ * published envelope to the subscribers of all other nodes in the cluster;
+ * delivery back to the publishing node is optional, receivers skip their own
+ * envelopes by origin.
+ */
+public interface ClusterMessageBus {
+
+    String nodeId();
+
+    void publish(ClusterEnvelope envelope);
+
+    void subscribe(Consumer<ClusterEnvelope> subscriber);
+}
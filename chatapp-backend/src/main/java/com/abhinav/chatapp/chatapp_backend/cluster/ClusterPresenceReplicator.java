@@ -0,0 +1,262 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import com.abhinav.chatapp.chatapp_backend.playload.NodePresence;
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceDelta;
+import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives every node the cluster-wide presence of a room. Each node counts only its own
+ * sessions (ActiveUserStore); this replicator sends that node's presence deltas over
+ * the {@link ClusterMessageBus} and keeps a replica of every other node's share, which
+ * snapshots list next to the local one. Clients receive the deltas of all nodes on
+ * {@code /topic/room/{roomId}/presence} and chain them per node.
+ * <p>
+ * A replica that misses a delta, or a node heard from for the first time, is repaired
+ * by asking that node for its state. Nodes send heartbeats; one that stays silent for
+ * {@code app.cluster.presence.node-timeout-ms}, or says goodbye on shutdown, is dropped,
+ * and this node's clients get a nodeDown delta for each room it had members in.
+ */
+@Component
+@Slf4j
+public class ClusterPresenceReplicator {
+
+    static final String PREFIX = "cluster:presence/";
+    static final String DELTA = PREFIX + "delta";
+    static final String STATE = PREFIX + "state";
+    static final String SYNC = PREFIX + "sync";
+    static final String HEARTBEAT = PREFIX + "heartbeat";
+    static final String GOODBYE = PREFIX + "goodbye";
+    private static final String CONTENT_TYPE = "application/json";
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final ClusterMessageBus bus;
+    private final ActiveUserStore activeUserStore;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final long nodeTimeoutNanos;
+
+    //roomId -> nodeId -> that node's share, as last replicated
+    private final Map<String, Map<String, NodeRoom>> replicas = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastHeard = new ConcurrentHashMap<>();
+
+    public ClusterPresenceReplicator(ObjectProvider<ClusterMessageBus> bus,
+                                     ActiveUserStore activeUserStore,
+                                     SimpMessagingTemplate messagingTemplate,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.cluster.presence.node-timeout-ms:10000}") long nodeTimeoutMs) {
+        this.bus = bus.getIfAvailable();
+        this.activeUserStore = activeUserStore;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.nodeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(nodeTimeoutMs);
+        Gauge.builder("chat.cluster.nodes", lastHeard, nodes -> nodes.size() + 1)
+                .description("Nodes this node has heard from, itself included")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (bus == null) {
+            return;
+        }
+        activeUserStore.joinCluster(bus.nodeId(), this::publishDelta, this::remotePresence);
+        bus.subscribe(this::receive);
+        //everyone answers with their state, so a starting node sees existing presence at once
+        publish(SYNC, new SyncRequest(null, null));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (bus != null) {
+            publish(GOODBYE, null);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.presence.heartbeat-ms:2000}")
+    public void heartbeat() {
+        if (bus == null) {
+            return;
+        }
+        publish(HEARTBEAT, null);
+        long now = System.nanoTime();
+        lastHeard.forEach((nodeId, heard) -> {
+            if (now - heard > nodeTimeoutNanos) {
+                log.warn("No heartbeat from node {} in {} ms, dropping its presence",
+                        nodeId, TimeUnit.NANOSECONDS.toMillis(nodeTimeoutNanos));
+                dropNode(nodeId);
+            }
+        });
+    }
+
+    public List<NodePresence> remotePresence(String roomId) {
+        Map<String, NodeRoom> nodes = replicas.get(roomId);
+        if (nodes == null) {
+            return List.of();
+        }
+        List<NodePresence> presence = new ArrayList<>();
+        nodes.forEach((nodeId, room) -> presence.add(new NodePresence(nodeId, room.version(), room.users())));
+        return presence;
+    }
+
+    //synchronized with publishState: a state taken before a drain must not arrive after its delta
+    private synchronized void publishDelta(PresenceDelta delta) {
+        publish(DELTA, delta);
+    }
+
+    private void receive(ClusterEnvelope envelope) {
+        String origin = envelope.originNodeId();
+        if (bus.nodeId().equals(origin) || !envelope.destination().startsWith(PREFIX)) {
+            return;
+        }
+        try {
+            if (GOODBYE.equals(envelope.destination())) {
+                log.info("Node {} left the cluster", origin);
+                dropNode(origin);
+                return;
+            }
+            if (lastHeard.put(origin, System.nanoTime()) == null && !SYNC.equals(envelope.destination())) {
+                log.info("Heard from node {}, requesting its presence", origin);
+                publish(SYNC, new SyncRequest(origin, null));
+            }
+            switch (envelope.destination()) {
+                case DELTA -> {
+                    PresenceDelta delta = objectMapper.readValue(envelope.payload(), PresenceDelta.class);
+                    if (!applyDelta(origin, delta)) {
+                        publish(SYNC, new SyncRequest(origin, delta.getRoomId()));
+                    }
+                }
+                case STATE -> applyState(origin, objectMapper.readValue(envelope.payload(), NodeState.class));
+                case SYNC -> {
+                    SyncRequest request = objectMapper.readValue(envelope.payload(), SyncRequest.class);
+                    if (request.nodeId() == null || request.nodeId().equals(bus.nodeId())) {
+                        publishState(request.roomId());
+                    }
+                }
+                default -> { }
+            }
+        } catch (IOException ex) {
+            log.warn("Unreadable {} from node {}: {}", envelope.destination(), origin, ex.getMessage());
+        }
+    }
+
+    //false when the replica missed a delta and needs the node's state
+    boolean applyDelta(String nodeId, PresenceDelta delta) {
+        boolean[] inSync = {true};
+        replicas.compute(delta.getRoomId(), (roomId, nodes) -> {
+            Map<String, NodeRoom> current = nodes != null ? nodes : new ConcurrentHashMap<>();
+            NodeRoom room = current.get(nodeId);
+            long version = room != null ? room.version() : 0;
+            if (delta.getVersion() <= version && room != null) {
+                return current;
+            }
+            if (delta.getFromVersion() != version) {
+                inSync[0] = false;
+                return nodes;
+            }
+            Set<String> users = new HashSet<>(room != null ? room.users() : Set.of());
+            users.addAll(delta.getJoined());
+            users.removeAll(delta.getLeft());
+            current.put(nodeId, new NodeRoom(delta.getVersion(), Set.copyOf(users)));
+            return current;
+        });
+        return inSync[0];
+    }
+
+    //a complete state replaces everything known from the node, a partial one only its rooms
+    void applyState(String nodeId, NodeState state) {
+        Set<String> reported = new HashSet<>();
+        for (RoomState room : state.rooms()) {
+            reported.add(room.roomId());
+            replicas.compute(room.roomId(), (roomId, nodes) -> {
+                Map<String, NodeRoom> current = nodes != null ? nodes : new ConcurrentHashMap<>();
+                NodeRoom known = current.get(nodeId);
+                //a delta applied after the state was taken is newer
+                if (known == null || room.version() >= known.version()) {
+                    current.put(nodeId, new NodeRoom(room.version(), Set.copyOf(room.users())));
+                }
+                return current;
+            });
+        }
+        if (state.complete()) {
+            for (String roomId : replicas.keySet()) {
+                if (!reported.contains(roomId)) {
+                    replicas.computeIfPresent(roomId, (id, nodes) -> {
+                        nodes.remove(nodeId);
+                        return nodes.isEmpty() ? null : nodes;
+                    });
+                }
+            }
+        }
+    }
+
+    void dropNode(String nodeId) {
+        lastHeard.remove(nodeId);
+        for (String roomId : replicas.keySet()) {
+            NodeRoom[] dropped = new NodeRoom[1];
+            replicas.computeIfPresent(roomId, (id, nodes) -> {
+                dropped[0] = nodes.remove(nodeId);
+                return nodes.isEmpty() ? null : nodes;
+            });
+            if (dropped[0] != null && !dropped[0].users().isEmpty()) {
+                messagingTemplate.convertAndSend(ROOM_TOPIC_PREFIX + roomId + "/presence",
+                        new PresenceDelta(roomId, nodeId, dropped[0].version(), dropped[0].version(),
+                                Set.of(), dropped[0].users(), true));
+            }
+        }
+    }
+
+    private synchronized void publishState(String roomId) {
+        List<RoomState> rooms = new ArrayList<>();
+        if (roomId != null) {
+            NodePresence presence = activeUserStore.localPresence(roomId);
+            rooms.add(new RoomState(roomId, presence.getVersion(), presence.getUsers()));
+        } else {
+            activeUserStore.localPresence().forEach((id, presence) ->
+                    rooms.add(new RoomState(id, presence.getVersion(), presence.getUsers())));
+        }
+        publish(STATE, new NodeState(roomId == null, rooms));
+    }
+
+    private void publish(String destination, Object payload) {
+        try {
+            byte[] body = payload != null ? objectMapper.writeValueAsBytes(payload) : new byte[0];
+            bus.publish(new ClusterEnvelope(bus.nodeId(), destination, CONTENT_TYPE, body));
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not publish {}: {}", destination, ex.getMessage());
+        }
+    }
+
+    private record NodeRoom(long version, Set<String> users) {
+    }
+
+    //nodeId null: every node answers; roomId null: all rooms
+    record SyncRequest(String nodeId, String roomId) {
+    }
+
+    record NodeState(boolean complete, List<RoomState> rooms) {
+    }
+
+    record RoomState(String roomId, long version, Set<String> users) {
+    }
+}
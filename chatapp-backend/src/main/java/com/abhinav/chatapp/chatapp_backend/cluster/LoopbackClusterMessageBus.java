@@ -0,0 +1,81 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a real pub/sub bus: every application context in the
+ * same JVM that joins the same channel behaves like a separate node. Delivery is
+ * asynchronous and per-receiver ordered, like a network bus would be, which lets
+ * several instances be started side by side in one test or one process.
+ */
+@Slf4j
+public class LoopbackClusterMessageBus implements ClusterMessageBus {
+
+    private static final Map<String, List<LoopbackClusterMessageBus>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private final String channel;
+    private final List<Consumer<ClusterEnvelope>> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService delivery;
+
+    public LoopbackClusterMessageBus(String nodeId, String channel) {
+        this.nodeId = nodeId;
+        this.channel = channel;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-loopback-" + nodeId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(this);
+        log.info("Node {} joined loopback channel {}", nodeId, channel);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        for (LoopbackClusterMessageBus node : CHANNELS.getOrDefault(channel, List.of())) {
+            if (node != this) {
+                node.deliver(envelope);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEnvelope> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    private void deliver(ClusterEnvelope envelope) {
+        delivery.execute(() -> {
+            for (Consumer<ClusterEnvelope> subscriber : subscribers) {
+                try {
+                    subscriber.accept(envelope);
+                } catch (RuntimeException ex) {
+                    log.warn("Loopback delivery to {} failed: {}", nodeId, ex.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void leave() {
+        List<LoopbackClusterMessageBus> nodes = CHANNELS.get(channel);
+        if (nodes != null) {
+            nodes.remove(this);
+        }
+        delivery.shutdown();
+    }
+}
@@ -0,0 +1,90 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Bus over the external STOMP broker used in relay mode. Envelopes are sent through the
+ * broker channel, which the relay forwards on its system connection, to one internal
+ * topic ({@code /topic/cluster.{channel}}); the relay's system subscription to that
+ * topic hands every node's envelopes back to {@link #handleMessage}, own ones included.
+ * The envelope's destination and origin travel as native headers. Clients may not use
+ * the topic, see ClusterDestinationGuard.
+ */
+@Slf4j
+public class RelayClusterMessageBus implements ClusterMessageBus, MessageHandler {
+
+    public static final String DESTINATION_PREFIX = "/topic/cluster.";
+    private static final String ORIGIN_HEADER = "cluster-origin";
+    private static final String DESTINATION_HEADER = "cluster-destination";
+
+    private final String nodeId;
+    private final String destination;
+    private final MessageChannel brokerChannel;
+    private final List<Consumer<ClusterEnvelope>> subscribers = new CopyOnWriteArrayList<>();
+
+    public RelayClusterMessageBus(String nodeId, String channel, MessageChannel brokerChannel) {
+        this.nodeId = nodeId;
+        this.destination = DESTINATION_PREFIX + channel;
+        this.brokerChannel = brokerChannel;
+    }
+
+    public String destination() {
+        return destination;
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void publish(ClusterEnvelope envelope) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        if (envelope.contentType() != null) {
+            accessor.setContentType(MimeType.valueOf(envelope.contentType()));
+        }
+        accessor.setNativeHeader(ORIGIN_HEADER, envelope.originNodeId());
+        accessor.setNativeHeader(DESTINATION_HEADER, envelope.destination());
+        brokerChannel.send(MessageBuilder.createMessage(envelope.payload(), accessor.getMessageHeaders()));
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEnvelope> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        String origin = NativeMessageHeaderAccessor.getFirstNativeHeader(ORIGIN_HEADER, headers);
+        String envelopeDestination = NativeMessageHeaderAccessor.getFirstNativeHeader(DESTINATION_HEADER, headers);
+        if (origin == null || envelopeDestination == null || !(message.getPayload() instanceof byte[] payload)) {
+            log.warn("Ignoring a message on {} without cluster headers", destination);
+            return;
+        }
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        ClusterEnvelope envelope = new ClusterEnvelope(origin, envelopeDestination,
+                contentType != null ? contentType.toString() : null, payload);
+        for (Consumer<ClusterEnvelope> subscriber : subscribers) {
+            try {
+                subscriber.accept(envelope);
+            } catch (RuntimeException ex) {
+                log.warn("Relay delivery from {} failed: {}", origin, ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.abhinav.chatapp.chatapp_backend.config;
+
+import com.abhinav.chatapp.chatapp_backend.cluster.ClusterMessageBus;
+import com.abhinav.chatapp.chatapp_backend.cluster.LoopbackClusterMessageBus;
+import com.abhinav.chatapp.chatapp_backend.cluster.RelayClusterMessageBus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * app.cluster.mode selects how room topics and presence reach other nodes:
+ * <ul>
+ *     <li>{@code none} (default): single node, in-memory simple broker.</li>
+ *     <li>{@code loopback}: simple broker plus an in-process bus shared by every
+ *     context in the JVM, for running several nodes side by side.</li>
+ *     <li>{@code relay}: an external STOMP broker does the fan-out, see WebSocketConfig.</li>
+ * </ul>
+ * Both cluster modes also get a {@link com.abhinav.chatapp.chatapp_backend.cluster.ClusterMessageBus}
+ * for node-to-node traffic such as presence replication.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "loopback")
+    public ClusterMessageBus loopbackClusterMessageBus(@Value("${app.cluster.node-id:#{T(java.util.UUID).randomUUID().toString()}}") String nodeId,
+                                                       @Value("${app.cluster.loopback.channel:chat}") String channel) {
+        return new LoopbackClusterMessageBus(nodeId, channel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "relay")
+    public RelayClusterMessageBus relayClusterMessageBus(@Value("${app.cluster.node-id:#{T(java.util.UUID).randomUUID().toString()}}") String nodeId,
+                                                         @Value("${app.cluster.relay.channel:chat}") String channel,
+                                                         @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        return new RelayClusterMessageBus(nodeId, channel, brokerChannel);
+    }
+
+    //system subscriptions have to be in place before the relay connects
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "relay")
+    public static BeanPostProcessor relayClusterSubscription(ObjectProvider<RelayClusterMessageBus> bus) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof StompBrokerRelayMessageHandler relay) {
+                    RelayClusterMessageBus relayBus = bus.getObject();
+                    Map<String, MessageHandler> subscriptions = new HashMap<>(relay.getSystemSubscriptions());
+                    subscriptions.put(relayBus.destination(), relayBus);
+                    relay.setSystemSubscriptions(subscriptions);
+                }
+                return bean;
+            }
+        };
+    }
+}
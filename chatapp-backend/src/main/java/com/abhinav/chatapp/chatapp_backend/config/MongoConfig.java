@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.config;
+
+import com.abhinav.chatapp.chatapp_backend.persistence.MongoCommandProfiler;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("!inmemory")
+public class MongoConfig {
+
+    //applies to the blocking and, under the reactive profile, the reactive client
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandProfilerCustomizer(MongoCommandProfiler profiler) {
+        return settings -> settings.addCommandListener(profiler);
+    }
+}
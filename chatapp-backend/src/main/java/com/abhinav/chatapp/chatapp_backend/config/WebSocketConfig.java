@@ -1,12 +1,22 @@
 package com.abhinav.chatapp.chatapp_backend.config;
 
+import com.abhinav.chatapp.chatapp_backend.cluster.ClusterBrokerBridge;
+import com.abhinav.chatapp.chatapp_backend.cluster.ClusterDestinationGuard;
+import com.abhinav.chatapp.chatapp_backend.listeners.RoomSnapshotInterceptor;
+import com.abhinav.chatapp.chatapp_backend.metrics.InboundTimestampInterceptor;
+import com.abhinav.chatapp.chatapp_backend.metrics.WebSocketChannelMetrics;
+import com.abhinav.chatapp.chatapp_backend.security.SendRateLimitInterceptor;
 import com.abhinav.chatapp.chatapp_backend.security.WebSocketHandshakeInterceptor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -15,8 +25,66 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketHandshakeInterceptor webSocketHandshakeInterceptor;
     private final AppConstants appConstants;
+    private final ClusterBrokerBridge clusterBrokerBridge;
+    private final ClusterDestinationGuard clusterDestinationGuard;
+    private final WebSocketChannelMetrics webSocketChannelMetrics;
+    private final InboundTimestampInterceptor inboundTimestampInterceptor;
+    private final RoomSnapshotInterceptor roomSnapshotInterceptor;
+    private final SendRateLimitInterceptor sendRateLimitInterceptor;
+
+    @Value("${app.cluster.mode:none}")
+    private String clusterMode;
+
+    @Value("${app.cluster.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.cluster.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.cluster.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.cluster.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${app.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    //run inbound handlers (which block on Mongo) on virtual threads, needs a Java 21 runtime
+    @Value("${app.websocket.inbound.virtual-threads:false}")
+    private boolean inboundVirtualThreads;
+
+    @Value("${app.websocket.inbound.virtual-concurrency-limit:10000}")
+    private int inboundVirtualConcurrencyLimit;
+
+    @Value("${app.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:16}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Value("${app.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        //virtual threads give no per-session ordering on their own
+        registry.setPreserveReceiveOrder(inboundVirtualThreads);
         registry.addEndpoint("/ws")
                 .setAllowedOrigins(appConstants.getFrontEndBaseUrl())
                 .addInterceptors(webSocketHandshakeInterceptor)
@@ -25,7 +93,53 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        if ("relay".equals(clusterMode)) {
+            //every node subscribes at the external broker, which does the cross-node fan-out
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+        } else {
+            //queue: per-session replies such as send acks (/user/queue/acks)
+            registry.enableSimpleBroker("/topic", "/queue");
+            registry.configureBrokerChannel().interceptors(clusterBrokerBridge);
+        }
         registry.setApplicationDestinationPrefixes("/app");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(clusterDestinationGuard, sendRateLimitInterceptor, inboundTimestampInterceptor, roomSnapshotInterceptor);
+        if (inboundVirtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ws-inbound-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(inboundVirtualConcurrencyLimit);
+            executor.setTaskDecorator(webSocketChannelMetrics::trackVirtualInbound);
+            webSocketChannelMetrics.bindVirtualInbound();
+            registration.executor(executor);
+        } else {
+            registration.taskExecutor()
+                    .corePoolSize(inboundCorePoolSize)
+                    .maxPoolSize(inboundMaxPoolSize)
+                    .queueCapacity(inboundQueueCapacity);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+}
@@ -1,8 +1,11 @@
 package com.abhinav.chatapp.chatapp_backend.controllers;
 
 import com.abhinav.chatapp.chatapp_backend.playload.*;
+import com.abhinav.chatapp.chatapp_backend.security.PasswordHashingBusyException;
 import com.abhinav.chatapp.chatapp_backend.services.AuthService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -47,4 +50,11 @@ public class AuthController {
     public ResponseEntity<?> verifyOtp(@RequestBody VerifyOtpRequest request) {
         return authService.verifyOtp(request);
     }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<?> passwordHashingBusy(PasswordHashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
 }
@@ -1,24 +1,51 @@
 package com.abhinav.chatapp.chatapp_backend.controllers;
 
 import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
 import com.abhinav.chatapp.chatapp_backend.playload.MessageRequest;
 import com.abhinav.chatapp.chatapp_backend.services.ChatService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.Map;
+
 @Controller
 @RequiredArgsConstructor
 public class ChatController {
 
     private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatMetrics chatMetrics;
 
+    //sent explicitly instead of @SendTo so the broadcast can be timed; sends with a
+    //clientMessageId are acknowledged to the sending session with the stored message
     @MessageMapping("/sendMessage/{roomId}")
-    @SendTo("/topic/room/{roomId}")
-    public Message sendMessage(@DestinationVariable String roomId, @RequestBody MessageRequest request) {
-        return chatService.handleSendMessage(request);
+    @SendToUser(destinations = "/queue/acks", broadcast = false)
+    public Message sendMessage(@DestinationVariable String roomId, @RequestBody MessageRequest request,
+                               @Header(name = ChatMetrics.RECEIVED_AT_HEADER, required = false) Long receivedAt,
+                               SimpMessageHeaderAccessor headerAccessor) {
+        ChatService.SendResult result = chatService.handleSendMessage(request, senderOf(headerAccessor));
+        if (!result.duplicate()) {
+            messagingTemplate.convertAndSend("/topic/room/" + roomId, result.message());
+            chatMetrics.recordBroadcast(receivedAt);
+        }
+        return request.getClientMessageId() != null ? result.message() : null;
+    }
+
+    //the user the handshake authenticated, the session when there is none
+    private static String senderOf(SimpMessageHeaderAccessor headerAccessor) {
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        if (attributes != null && attributes.get("user") instanceof User user && user.getId() != null) {
+            return user.getId();
+        }
+        return headerAccessor.getSessionId();
     }
 }
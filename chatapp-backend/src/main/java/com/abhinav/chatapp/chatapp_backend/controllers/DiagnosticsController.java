@@ -0,0 +1,33 @@
+package com.abhinav.chatapp.chatapp_backend.controllers;
+
+import com.abhinav.chatapp.chatapp_backend.persistence.MongoCommandProfiler;
+import com.abhinav.chatapp.chatapp_backend.persistence.MongoIndexManager;
+import com.abhinav.chatapp.chatapp_backend.playload.MongoDiagnostics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+//admin only, see SecurityConfig
+@RestController
+@RequestMapping("/api/admin/diagnostics")
+@RequiredArgsConstructor
+@Profile("!inmemory")
+public class DiagnosticsController {
+
+    private final MongoIndexManager mongoIndexManager;
+    private final MongoCommandProfiler mongoCommandProfiler;
+
+    @GetMapping("/mongo")
+    public ResponseEntity<MongoDiagnostics> mongo() {
+        return ResponseEntity.ok(new MongoDiagnostics(
+                mongoIndexManager.getReport(),
+                mongoCommandProfiler.getSlowThresholdMs(),
+                mongoCommandProfiler.getStats(),
+                mongoCommandProfiler.getSlowOperations(),
+                mongoCommandProfiler.getCollectionScans()
+        ));
+    }
+}
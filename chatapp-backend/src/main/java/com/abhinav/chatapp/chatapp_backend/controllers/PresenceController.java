@@ -0,0 +1,21 @@
+package com.abhinav.chatapp.chatapp_backend.controllers;
+
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceSnapshot;
+import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+@Controller
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final ActiveUserStore activeUserStore;
+
+    //one-off reply to the subscriber, deltas then follow on /topic/room/{roomId}/presence
+    @SubscribeMapping("/room/{roomId}/presence")
+    public PresenceSnapshot roomPresenceSnapshot(@DestinationVariable String roomId) {
+        return activeUserStore.roomSnapshot(roomId);
+    }
+}
@@ -0,0 +1,117 @@
+package com.abhinav.chatapp.chatapp_backend.controllers;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipBulkRequest;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageHistoryResponse;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummaryPage;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomUserRequest;
+import com.abhinav.chatapp.chatapp_backend.services.ReactiveRoomService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+//replaces RoomController when the reactive profile is active, same routes and payloads
+@RestController
+@RequestMapping("/api/v1/rooms")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveRoomController {
+
+    private final ReactiveRoomService roomService;
+
+    @PostMapping
+    public Mono<Room> createRoom(@RequestBody RoomUserRequest request) {
+        return roomService.createRoom(request.getRoomId(), request.getUserId());
+    }
+
+    @GetMapping
+    public Flux<Room> getAllRooms() {
+        return roomService.getRooms();
+    }
+
+    @GetMapping("/summaries")
+    public Mono<ResponseEntity<RoomSummaryPage>> getRoomSummaries(
+            @AuthenticationPrincipal User user,
+            @RequestParam(value = "mine", defaultValue = "false", required = false) boolean mine,
+            @RequestParam(value = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(value = "size", defaultValue = "20", required = false) int size
+    ) {
+        return roomService.getRoomSummaries(mine ? user.getId() : null, page, size);
+    }
+
+    @PostMapping("/join")
+    public Mono<MembershipDelta> joinRoom(@RequestBody RoomUserRequest request) {
+        return roomService.addUserToRoom(request.getRoomId(), request.getUserId());
+    }
+
+    @PostMapping("/leave")
+    public Mono<MembershipDelta> leaveRoom(@RequestBody RoomUserRequest request) {
+        return roomService.removeUserFromRoom(request.getRoomId(), request.getUserId());
+    }
+
+    @PostMapping("/promote")
+    public Mono<MembershipDelta> promote(@RequestBody RoomUserRequest request) {
+        return roomService.promoteUser(request.getRoomId(), request.getUserId());
+    }
+
+    @PostMapping("/demote")
+    public Mono<MembershipDelta> demote(@RequestBody RoomUserRequest request) {
+        return roomService.demoteUser(request.getRoomId(), request.getUserId());
+    }
+
+    @PostMapping("/{roomId}/members/bulk")
+    public Mono<MembershipDelta> updateMembers(@PathVariable String roomId, @RequestBody MembershipBulkRequest request) {
+        return roomService.updateMembers(roomId, request.getOperations());
+    }
+
+    @GetMapping("/{roomId}/messages")
+    public Mono<ResponseEntity<List<Message>>> getMessages(
+            @PathVariable String roomId,
+            @RequestParam(value = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(value = "size", defaultValue = "20", required = false) int size
+    ) {
+        if (page < 0 || size <= 0) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return roomService.exists(roomId).flatMap(exists -> exists
+                ? roomService.getPaginatedMessages(roomId, page, size).map(ResponseEntity::ok)
+                : Mono.just(ResponseEntity.badRequest().<List<Message>>build()));
+    }
+
+    @GetMapping("/{roomId}/history")
+    public Mono<ResponseEntity<MessageHistoryResponse>> getHistory(
+            @PathVariable String roomId,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "50", required = false) int limit
+    ) {
+        if ((before != null && after != null) || limit <= 0) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return roomService.exists(roomId).flatMap(exists -> exists
+                ? roomService.getMessageHistory(roomId, before, after, limit).map(ResponseEntity::ok)
+                : Mono.just(ResponseEntity.badRequest().<MessageHistoryResponse>build()));
+    }
+
+    //streams the history as server-sent events or newline-delimited JSON, picked by the Accept header
+    @GetMapping(value = "/{roomId}/history/stream",
+            produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<Flux<Message>> streamHistory(
+            @PathVariable String roomId,
+            @RequestParam(value = "after", defaultValue = "0", required = false) long after
+    ) {
+        Flux<Message> messages = roomService.exists(roomId)
+                .flatMapMany(exists -> exists ? roomService.streamHistory(roomId, after) : Flux.empty());
+        return ResponseEntity.ok(messages);
+    }
+}
@@ -1,18 +1,25 @@
 package com.abhinav.chatapp.chatapp_backend.controllers;
 
 import com.abhinav.chatapp.chatapp_backend.entities.Message;
-import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipBulkRequest;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageHistoryResponse;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummaryPage;
 import com.abhinav.chatapp.chatapp_backend.playload.RoomUserRequest;
 import com.abhinav.chatapp.chatapp_backend.services.RoomService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/rooms")
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class RoomController {
 
@@ -28,26 +35,43 @@ public class RoomController {
         return ResponseEntity.ok(roomService.getRooms());
     }
 
+    //light room list for the picker; mine=true lists only the caller's rooms
+    @GetMapping("/summaries")
+    public ResponseEntity<RoomSummaryPage> getRoomSummaries(
+            @AuthenticationPrincipal User user,
+            @RequestParam(value = "mine", defaultValue = "false", required = false) boolean mine,
+            @RequestParam(value = "page", defaultValue = "0", required = false) int page,
+            @RequestParam(value = "size", defaultValue = "20", required = false) int size
+    ) {
+        return roomService.getRoomSummaries(mine ? user.getId() : null, page, size);
+    }
+
     @PostMapping("/join")
     public ResponseEntity<?> joinRoom(@RequestBody RoomUserRequest request) {
         return ResponseEntity.ok(roomService.addUserToRoom(request.getRoomId(), request.getUserId()));
     }
 
     @PostMapping("/leave")
-    public ResponseEntity<Room> leaveRoom(@RequestBody RoomUserRequest request) {
+    public ResponseEntity<MembershipDelta> leaveRoom(@RequestBody RoomUserRequest request) {
         return ResponseEntity.ok(roomService.removeUserFromRoom(request.getRoomId(), request.getUserId()));
     }
 
     @PostMapping("/promote")
-    public ResponseEntity<Room> promote(@RequestBody RoomUserRequest request) {
+    public ResponseEntity<MembershipDelta> promote(@RequestBody RoomUserRequest request) {
         return ResponseEntity.ok(roomService.promoteUser(request.getRoomId(), request.getUserId()));
     }
 
     @PostMapping("/demote")
-    public ResponseEntity<Room> demote(@RequestBody RoomUserRequest request) {
+    public ResponseEntity<MembershipDelta> demote(@RequestBody RoomUserRequest request) {
         return ResponseEntity.ok(roomService.demoteUser(request.getRoomId(), request.getUserId()));
     }
 
+    //add, remove and re-role many users of one room in a single atomic update
+    @PostMapping("/{roomId}/members/bulk")
+    public ResponseEntity<MembershipDelta> updateMembers(@PathVariable String roomId, @RequestBody MembershipBulkRequest request) {
+        return ResponseEntity.ok(roomService.updateMembers(roomId, request.getOperations()));
+    }
+
     @GetMapping("/{roomId}/messages")
     public ResponseEntity<List<Message>> getMessages(
             @PathVariable String roomId,
@@ -56,4 +80,14 @@ public class RoomController {
     ) {
         return roomService.getPaginatedMessages(roomId, page, size);
     }
+
+    @GetMapping("/{roomId}/history")
+    public ResponseEntity<MessageHistoryResponse> getHistory(
+            @PathVariable String roomId,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "50", required = false) int limit
+    ) {
+        return roomService.getMessageHistory(roomId, before, after, limit);
+    }
 }
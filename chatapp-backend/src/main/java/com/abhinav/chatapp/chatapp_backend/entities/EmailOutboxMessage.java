@@ -0,0 +1,39 @@
+package com.abhinav.chatapp.chatapp_backend.entities;
+
+import com.abhinav.chatapp.chatapp_backend.enums.OutboxStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutboxMessage {
+    @Id
+    private String id;
+
+    private String recipient;
+    private String subject;
+    private String htmlBody;
+
+    private OutboxStatus status;
+    private int attempts;
+    private String lastError;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    //claimed by a dispatcher until then; an expired claim can be taken over
+    private LocalDateTime lockedUntil;
+    //not worth delivering after this, e.g. the OTP inside is no longer valid
+    private LocalDateTime expiresAt;
+    private LocalDateTime sentAt;
+}
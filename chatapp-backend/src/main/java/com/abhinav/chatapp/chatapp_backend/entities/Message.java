@@ -1,25 +1,51 @@
 package com.abhinav.chatapp.chatapp_backend.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
+@Document(collection = "messages")
+@CompoundIndex(name = "room_sequence", def = "{'roomId': 1, 'sequence': 1}", unique = true)
+//one stored message per client message id, whichever node took the send
+@CompoundIndex(name = "room_user_client_message", def = "{'roomId': 1, 'userId': 1, 'clientMessageId': 1}",
+        unique = true, partialFilter = "{'clientMessageId': {'$exists': true}, 'userId': {'$exists': true}}")
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 public class Message {
 
+    @Id
+    private String id;
+    private String roomId;
+    //per room, monotonically increasing
+    private long sequence;
+
     private String sender;
     private String content;
     private LocalDateTime timeStamp;
+    //set by the sending client to make retries idempotent, optional
+    private String clientMessageId;
+    //the authenticated sender, who scopes clientMessageId; never sent to clients
+    @JsonIgnore
+    private String userId;
+
+    //the sequence before this one in the room, on live broadcasts only; null for the first message.
+    //It may belong to a skipped block or a failed write, so a replay for it can come back empty
+    @Transient
+    private Long previousSequence;
 
     public Message(String sender, String content) {
         this.sender = sender;
         this.content = content;
         this.timeStamp = LocalDateTime.now();
     }
-}
\ No newline at end of file
+}
@@ -6,8 +6,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,10 +23,19 @@ import java.util.Map;
 public class Room {
     @Id
     private String id;//Mongo db : unique identifier
+    @Indexed(unique = true)
     private String roomId;
-    private List<Message> messages = new ArrayList<>();
+    //messages live in their own collection, see MessageRepository
 
     private Map<String, Role> participants = new HashMap<>();
+
+    //denormalized from the newest stored message, kept current by MessagePersistencePipeline
+    private long lastMessageSequence;
+    private String lastMessagePreview;
+    private String lastMessageSender;
+    @Indexed
+    private LocalDateTime lastActivityAt;
+
     private transient List<String> activeUserIds = new ArrayList<>();
 
-}
\ No newline at end of file
+}
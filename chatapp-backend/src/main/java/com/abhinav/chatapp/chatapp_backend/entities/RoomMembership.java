@@ -0,0 +1,25 @@
+package com.abhinav.chatapp.chatapp_backend.entities;
+
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+//one row per (user, room): answers "which rooms is this user in" without scanning participants maps
+@Document(collection = "room_memberships")
+@CompoundIndex(name = "user_room", def = "{'userId': 1, 'roomId': 1}", unique = true)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomMembership {
+    @Id
+    private String id;
+    private String userId;
+    private String roomId;
+    private Role role;
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -20,6 +21,7 @@ public class User {
     private String id;
 
     private String name;
+    @Indexed(unique = true)
     private String email;
     private String password;
     private Role role;
@@ -33,4 +35,9 @@ public class User {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    //websocket activity, written in batches by ConnectionActivityTracker
+    private LocalDateTime lastConnectedAt;
+    private LocalDateTime lastSeenAt;
+    private int activeSessions;
+
 }
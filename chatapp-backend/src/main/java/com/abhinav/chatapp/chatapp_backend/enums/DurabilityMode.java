@@ -0,0 +1,10 @@
+package com.abhinav.chatapp.chatapp_backend.enums;
+
+public enum DurabilityMode {
+    //insert on the sending thread before the broadcast
+    SYNC,
+    //batch with concurrent sends, broadcast once the batch is stored
+    GROUP_COMMIT,
+    //broadcast immediately, store in the background
+    ASYNC
+}
@@ -0,0 +1,9 @@
+package com.abhinav.chatapp.chatapp_backend.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED,
+    EXPIRED
+}
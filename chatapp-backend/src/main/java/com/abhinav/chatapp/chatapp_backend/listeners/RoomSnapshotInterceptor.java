@@ -0,0 +1,121 @@
+package com.abhinav.chatapp.chatapp_backend.listeners;
+
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSnapshot;
+import com.abhinav.chatapp.chatapp_backend.services.RoomService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Sends a {@link RoomSnapshot} as the first frame of every {@code /topic/room/{roomId}}
+ * subscription, so joining a room needs no history request. It runs once the broker
+ * has registered the subscription: a message broadcast meanwhile arrives both in the
+ * snapshot and live, never in neither. The frame carries a {@code snapshot:true}
+ * header; clients can ask for a size with {@code snapshot-limit} or opt out with
+ * {@code snapshot:false} on SUBSCRIBE.
+ * <p>
+ * A client resuming after a reconnect or a detected gap sends {@code last-sequence}
+ * instead and gets only the messages after it ({@code delta}). When more than
+ * {@code app.rooms.replay.max-messages} were missed it gets a full snapshot, which
+ * replaces what it holds.
+ */
+@Component
+@Slf4j
+public class RoomSnapshotInterceptor implements ExecutorChannelInterceptor {
+
+    public static final String SNAPSHOT_HEADER = "snapshot";
+    public static final String SNAPSHOT_LIMIT_HEADER = "snapshot-limit";
+    public static final String LAST_SEQUENCE_HEADER = "last-sequence";
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final RoomService roomService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageChannel clientOutboundChannel;
+    private final ChatMetrics chatMetrics;
+
+    @Value("${app.rooms.snapshot.size:50}")
+    private int defaultSize;
+
+    @Value("${app.rooms.replay.max-messages:500}")
+    private int maxReplayMessages;
+
+    public RoomSnapshotInterceptor(RoomService roomService,
+                                   @Lazy SimpMessagingTemplate messagingTemplate,
+                                   @Lazy @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                   ChatMetrics chatMetrics) {
+        this.roomService = roomService;
+        this.messagingTemplate = messagingTemplate;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.chatMetrics = chatMetrics;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        //the SUBSCRIBE goes to every handler, the broker's run is the one that registered it
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.SUBSCRIBE
+                || destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)
+                || "false".equals(accessor.getFirstNativeHeader(SNAPSHOT_HEADER))) {
+            return;
+        }
+
+        String roomId = destination.substring(ROOM_TOPIC_PREFIX.length());
+        Long lastSequence = parse(accessor.getFirstNativeHeader(LAST_SEQUENCE_HEADER));
+        RoomSnapshot snapshot;
+        try {
+            Optional<RoomSnapshot> replay = lastSequence == null ? Optional.empty()
+                    : roomService.getRoomReplay(roomId, lastSequence, maxReplayMessages);
+            snapshot = replay.orElseGet(() -> roomService.getRoomSnapshot(roomId, limitOf(accessor)));
+            if (lastSequence != null) {
+                chatMetrics.recordResume(replay.isPresent(), snapshot.getMessages().size());
+            }
+        } catch (RuntimeException snapshotFailure) {
+            log.debug("No snapshot for {} on session {}: {}", roomId, accessor.getSessionId(), snapshotFailure.getMessage());
+            return;
+        }
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(accessor.getSessionId());
+        headers.setSubscriptionId(accessor.getSubscriptionId());
+        headers.setDestination(destination);
+        headers.setNativeHeader(SNAPSHOT_HEADER, "true");
+        headers.setLeaveMutable(true);
+        Message<?> frame = messagingTemplate.getMessageConverter().toMessage(snapshot, headers.getMessageHeaders());
+        if (frame != null) {
+            clientOutboundChannel.send(frame);
+        }
+    }
+
+    private int limitOf(SimpMessageHeaderAccessor accessor) {
+        Long requested = parse(accessor.getFirstNativeHeader(SNAPSHOT_LIMIT_HEADER));
+        return requested != null ? (int) Math.min(requested, Integer.MAX_VALUE) : defaultSize;
+    }
+
+    private static Long parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(header);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -1,54 +1,81 @@
 package com.abhinav.chatapp.chatapp_backend.listeners;
 
-import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
 import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
-import lombok.RequiredArgsConstructor;
+import com.abhinav.chatapp.chatapp_backend.utils.ConnectionActivityTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
 
 @Component
 @Slf4j
 public class WebSocketEventListener {
-    private final UserRepository userRepository;
+    private final ConnectionActivityTracker connectionActivityTracker;
     private final ActiveUserStore activeUserStore;
 
-    public WebSocketEventListener(UserRepository userRepository, @Lazy ActiveUserStore activeUserStore) {
-        this.userRepository = userRepository;
+    public WebSocketEventListener(ConnectionActivityTracker connectionActivityTracker, @Lazy ActiveUserStore activeUserStore) {
+        this.connectionActivityTracker = connectionActivityTracker;
         this.activeUserStore = activeUserStore;
     }
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
-        String userEmail = accessor.getSessionAttributes() != null
-                ? (String) accessor.getSessionAttributes().get("email")
-                : accessor.getFirstNativeHeader("email");
+        String userEmail = emailOf(accessor);
 
         if (userEmail != null) {
-            activeUserStore.addUser(userEmail);
-            userRepository.findByEmail(userEmail).ifPresent(user -> {
-                userRepository.save(user);
-                log.info("User connected: {}", userEmail);
-            });
+            activeUserStore.sessionConnected(accessor.getSessionId(), userEmail);
+            connectionActivityTracker.connected(userEmail, activeUserStore.getSessionCount(userEmail));
+            log.info("User connected: {}", userEmail);
         }
     }
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
-        StompHeaderAccessor accessor = StompHeaderAccessor.wrap((event.getMessage()));
-        String userEmail = (String) accessor.getSessionAttributes().get("email");
+        String sessionId = event.getSessionId();
+        String userEmail = activeUserStore.emailOf(sessionId).orElse(null);
+        activeUserStore.sessionDisconnected(sessionId);
         if (userEmail != null) {
-            activeUserStore.removeUser(userEmail);
-            userRepository.findByEmail(userEmail).ifPresent(user -> {
-                userRepository.save(user);
-                log.info("User disconnected: {}", userEmail);
-            });
+            connectionActivityTracker.disconnected(userEmail, activeUserStore.getSessionCount(userEmail));
+            log.info("User disconnected: {}", userEmail);
+        }
+    }
+
+    @EventListener
+    public void handleSubscribeListener(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        activeUserStore.subscribed(accessor.getSessionId(), accessor.getSubscriptionId(), accessor.getDestination());
+    }
+
+    @EventListener
+    public void handleUnsubscribeListener(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        activeUserStore.unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    //the CONNECTED frame may not carry the handshake attributes itself, the original CONNECT does
+    private static String emailOf(StompHeaderAccessor accessor) {
+        String email = emailOf(accessor.getSessionAttributes());
+        if (email == null) {
+            Message<?> connect = (Message<?>) accessor.getHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+            if (connect != null) {
+                email = emailOf(SimpMessageHeaderAccessor.getSessionAttributes(connect.getHeaders()));
+            }
         }
+        return email != null ? email : accessor.getFirstNativeHeader("email");
+    }
+
+    private static String emailOf(Map<String, Object> sessionAttributes) {
+        return sessionAttributes != null ? (String) sessionAttributes.get("email") : null;
     }
 
 }
@@ -0,0 +1,167 @@
+package com.abhinav.chatapp.chatapp_backend.metrics;
+
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the chat hot paths, scraped from /actuator/prometheus.
+ * <ul>
+ *     <li>{@code chat.send}: ChatService.handleSendMessage, tagged by outcome.</li>
+ *     <li>{@code chat.broadcast.latency}: from the SEND frame entering the inbound channel
+ *     to the message being handed to the broker.</li>
+ *     <li>{@code chat.history.read}: history and page reads, tagged by endpoint.</li>
+ *     <li>{@code auth.jwt.validate}: JWT parsing and signature check on a principal cache miss.</li>
+ *     <li>{@code websocket.handshake.failures}: rejected or failed handshakes, tagged by reason.</li>
+ *     <li>{@code chat.room.resume}: subscriptions resumed from a last sequence, tagged by whether
+ *     the missed range was replayed or a fresh snapshot was needed.</li>
+ *     <li>{@code chat.send.throttled}: SEND frames rejected by SendRateLimitInterceptor, tagged by
+ *     the bucket that ran out (user or room) and the sender's role.</li>
+ * </ul>
+ * Session, presence and channel gauges are registered by ActiveUserStore and
+ * WebSocketChannelMetrics.
+ */
+@Component
+public class ChatMetrics {
+
+    //set on inbound SEND frames by InboundTimestampInterceptor
+    public static final String RECEIVED_AT_HEADER = "chatReceivedAt";
+
+    //tag values known up front; their meters are registered once, not on every call
+    private static final List<String> HISTORY_ENDPOINTS = List.of("messages", "history");
+    private static final List<String> HANDSHAKE_FAILURE_REASONS = List.of("missing_token", "unknown_user", "invalid_token", "error");
+    private static final List<String> THROTTLE_SCOPES = List.of("user", "room");
+
+    private final MeterRegistry meterRegistry;
+    private final Timer sendSuccess;
+    private final Timer sendError;
+    private final Timer broadcastLatency;
+    private final Timer jwtValid;
+    private final Timer jwtInvalid;
+    private final Counter resumeReplayed;
+    private final Counter resumeSnapshot;
+    private final DistributionSummary resumeMessages;
+    private final Map<String, Timer> historyReads = new ConcurrentHashMap<>();
+    private final Map<String, Counter> handshakeFailures = new ConcurrentHashMap<>();
+    private final Map<String, Map<Role, Counter>> sendsThrottled = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.sendSuccess = sendTimer("success");
+        this.sendError = sendTimer("error");
+        this.broadcastLatency = Timer.builder("chat.broadcast.latency")
+                .description("Time from receiving a chat message to handing it to the broker")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.jwtValid = jwtTimer("valid");
+        this.jwtInvalid = jwtTimer("invalid");
+        this.resumeReplayed = resumeCounter("replay");
+        this.resumeSnapshot = resumeCounter("snapshot");
+        this.resumeMessages = DistributionSummary.builder("chat.room.resume.messages")
+                .description("Messages sent to a resuming subscription")
+                .register(meterRegistry);
+        HISTORY_ENDPOINTS.forEach(endpoint -> historyReads.put(endpoint, historyTimer(endpoint)));
+        HANDSHAKE_FAILURE_REASONS.forEach(reason -> handshakeFailures.put(reason, handshakeCounter(reason)));
+        THROTTLE_SCOPES.forEach(scope -> sendsThrottled.put(scope, throttledCounters(scope)));
+    }
+
+    public <T> T timeSend(Supplier<T> send) {
+        long start = System.nanoTime();
+        try {
+            T result = send.get();
+            sendSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException ex) {
+            sendError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    public void recordBroadcast(Long receivedAtNanos) {
+        if (receivedAtNanos != null) {
+            broadcastLatency.record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public <T> T timeHistoryRead(String endpoint, Supplier<T> read) {
+        return meter(historyReads, endpoint, this::historyTimer).record(read);
+    }
+
+    public void recordJwtValidation(long elapsedNanos, boolean valid) {
+        (valid ? jwtValid : jwtInvalid).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void handshakeFailed(String reason) {
+        meter(handshakeFailures, reason, this::handshakeCounter).increment();
+    }
+
+    public void recordResume(boolean replayed, int messages) {
+        (replayed ? resumeReplayed : resumeSnapshot).increment();
+        resumeMessages.record(messages);
+    }
+
+    public void sendThrottled(String scope, Role role) {
+        meter(sendsThrottled, scope, this::throttledCounters).get(role).increment();
+    }
+
+    //registered on first use only for a tag value not listed above
+    private static <M> M meter(Map<String, M> meters, String tag, Function<String, M> register) {
+        M meter = meters.get(tag);
+        return meter != null ? meter : meters.computeIfAbsent(tag, register);
+    }
+
+    private Timer sendTimer(String outcome) {
+        return Timer.builder("chat.send")
+                .description("ChatService.handleSendMessage, including the wait for durability")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer historyTimer(String endpoint) {
+        return Timer.builder("chat.history.read")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer jwtTimer(String outcome) {
+        return Timer.builder("auth.jwt.validate")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Counter handshakeCounter(String reason) {
+        return Counter.builder("websocket.handshake.failures")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private Counter resumeCounter(String result) {
+        return Counter.builder("chat.room.resume")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Map<Role, Counter> throttledCounters(String scope) {
+        Map<Role, Counter> counters = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            counters.put(role, Counter.builder("chat.send.throttled")
+                    .tag("scope", scope)
+                    .tag("role", role.name())
+                    .register(meterRegistry));
+        }
+        return counters;
+    }
+}
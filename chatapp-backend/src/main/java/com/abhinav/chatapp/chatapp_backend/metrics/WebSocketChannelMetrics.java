@@ -0,0 +1,87 @@
+package com.abhinav.chatapp.chatapp_backend.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saturation gauges for the STOMP channel pools: active threads against the pool
+ * maximum and queued tasks against the queue capacity. When the inbound channel
+ * runs on virtual threads it reports the number of handlers in flight instead.
+ */
+@Component
+public class WebSocketChannelMetrics implements SmartInitializingSingleton {
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<ThreadPoolTaskExecutor> inboundExecutor;
+    private final ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor;
+    private final ObjectProvider<ThreadPoolTaskExecutor> brokerExecutor;
+    private final AtomicInteger virtualInboundActive = new AtomicInteger();
+
+    public WebSocketChannelMetrics(MeterRegistry meterRegistry,
+                                   @Qualifier("clientInboundChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> inboundExecutor,
+                                   @Qualifier("clientOutboundChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor,
+                                   @Qualifier("brokerChannelExecutor") ObjectProvider<ThreadPoolTaskExecutor> brokerExecutor) {
+        this.meterRegistry = meterRegistry;
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+        this.brokerExecutor = brokerExecutor;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        bind("inbound", inboundExecutor.getIfAvailable());
+        bind("outbound", outboundExecutor.getIfAvailable());
+        //the broker channel is synchronous unless given an executor, so this stays at zero
+        //and the fan-out backlog shows up on the outbound channel instead
+        bind("broker", brokerExecutor.getIfAvailable());
+    }
+
+    //used as the task decorator of the virtual-thread inbound executor
+    public Runnable trackVirtualInbound(Runnable task) {
+        return () -> {
+            virtualInboundActive.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                virtualInboundActive.decrementAndGet();
+            }
+        };
+    }
+
+    public void bindVirtualInbound() {
+        Gauge.builder("websocket.channel.active", virtualInboundActive, AtomicInteger::get)
+                .description("Inbound STOMP handlers running on virtual threads")
+                .tag("channel", "inbound")
+                .tag("threads", "virtual")
+                .register(meterRegistry);
+    }
+
+    private void bind(String channel, ThreadPoolTaskExecutor executor) {
+        if (executor == null || executor.getThreadPoolExecutor() == null) {
+            return;
+        }
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        Gauge.builder("websocket.channel.active", pool, ThreadPoolExecutor::getActiveCount)
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.channel.queued", pool, p -> p.getQueue().size())
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.channel.saturation", pool,
+                        p -> p.getMaximumPoolSize() == 0 ? 0 : (double) p.getActiveCount() / p.getMaximumPoolSize())
+                .description("Active threads as a fraction of the pool maximum")
+                .tag("channel", channel)
+                .register(meterRegistry);
+        Gauge.builder("websocket.channel.queue.remaining", pool, p -> p.getQueue().remainingCapacity())
+                .tag("channel", channel)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,146 @@
+package com.abhinav.chatapp.chatapp_backend.migrations;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Moves message histories that are still embedded in room documents into the
+ * messages collection. Runs once the singletons are ready and before the web
+ * server accepts traffic, so no new send can race the import.
+ * <p>
+ * Each legacy message is upserted on (roomId, sequence), which makes a re-run
+ * after a crash safe; the embedded list is only removed once every one of its
+ * messages is stored. Legacy messages whose sequence is already taken by another
+ * message (sends accepted before the migration ran) are stored after the room's
+ * newest message instead, at sequences reserved once and recorded on the room so
+ * that a re-run reuses them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Profile("!inmemory")
+public class LegacyMessageMigration implements SmartInitializingSingleton {
+
+    private static final String ROOMS = "rooms";
+    //first of the sequences reserved for displaced legacy messages, until the room is migrated
+    private static final String RELOCATED_FROM = "legacyRelocatedFrom";
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageRepository messageRepository;
+
+    @Value("${app.migrations.split-room-messages:true}")
+    private boolean enabled;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+
+        Query legacyRooms = new Query(where("messages.0").exists(true));
+        legacyRooms.fields().include("roomId").include("messages").include(RELOCATED_FROM);
+
+        int migratedRooms = 0;
+        try (Stream<Document> rooms = mongoTemplate.stream(legacyRooms, Document.class, ROOMS)) {
+            for (Document room : (Iterable<Document>) rooms::iterator) {
+                String roomId = room.getString("roomId");
+                if (roomId == null) {
+                    log.warn("Skipping room {} without roomId", room.get("_id"));
+                    continue;
+                }
+                List<Document> legacyMessages = room.getList("messages", Document.class);
+                upsertAt(roomId, legacyMessages, 1);
+                messageRepository.ensureSequenceAtLeast(roomId, legacyMessages.size());
+                List<Document> displaced = displaced(roomId, legacyMessages);
+                if (!displaced.isEmpty()) {
+                    long first = relocationStart(room, roomId, displaced.size());
+                    upsertAt(roomId, displaced, first);
+                    log.warn("{} of the {} embedded messages of room {} found their sequence taken by newer messages, "
+                            + "stored them at {}..{}", displaced.size(), legacyMessages.size(), roomId,
+                            first, first + displaced.size() - 1);
+                }
+                mongoTemplate.updateFirst(query(where("_id").is(room.get("_id"))),
+                        new Update().unset("messages").unset(RELOCATED_FROM), ROOMS);
+                log.info("Moved {} embedded messages of room {}", legacyMessages.size(), roomId);
+                migratedRooms++;
+            }
+        }
+
+        if (migratedRooms > 0) {
+            log.info("Split embedded message history out of {} rooms", migratedRooms);
+        }
+    }
+
+    //stores the messages at consecutive sequences from first on, leaving taken sequences alone
+    private void upsertAt(String roomId, List<Document> legacyMessages, long first) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        long sequence = first;
+        for (Document legacy : legacyMessages) {
+            bulk.upsert(
+                    query(where("roomId").is(roomId).and("sequence").is(sequence)),
+                    new Update()
+                            .setOnInsert("sender", legacy.get("sender"))
+                            .setOnInsert("content", legacy.get("content"))
+                            .setOnInsert("timeStamp", legacy.get("timeStamp"))
+            );
+            sequence++;
+        }
+        if (!legacyMessages.isEmpty()) {
+            bulk.execute();
+        }
+    }
+
+    //the same sequences on every run, so a re-run after a crash does not store the messages twice
+    private long relocationStart(Document room, String roomId, int count) {
+        if (room.get(RELOCATED_FROM) instanceof Number reserved) {
+            return reserved.longValue();
+        }
+        long first = messageRepository.reserveSequences(roomId, count) - count + 1;
+        mongoTemplate.updateFirst(query(where("_id").is(room.get("_id"))), new Update().set(RELOCATED_FROM, first), ROOMS);
+        return first;
+    }
+
+    //legacy messages missing from their sequence 1..n, or found there with other content
+    private List<Document> displaced(String roomId, List<Document> legacyMessages) {
+        Query stored = query(where("roomId").is(roomId).and("sequence").gte(1).lte(legacyMessages.size()));
+        stored.fields().include("sequence").include("sender").include("content").include("timeStamp");
+        Map<Long, Document> bySequence = new HashMap<>();
+        for (Document message : mongoTemplate.find(stored, Document.class, mongoTemplate.getCollectionName(Message.class))) {
+            bySequence.put(((Number) message.get("sequence")).longValue(), message);
+        }
+
+        List<Document> displaced = new ArrayList<>();
+        for (int i = 0; i < legacyMessages.size(); i++) {
+            Document legacy = legacyMessages.get(i);
+            Document message = bySequence.get(i + 1L);
+            if (message == null
+                    || !Objects.equals(message.get("sender"), legacy.get("sender"))
+                    || !Objects.equals(message.get("content"), legacy.get("content"))
+                    || !Objects.equals(message.get("timeStamp"), legacy.get("timeStamp"))) {
+                displaced.add(legacy);
+            }
+        }
+        return displaced;
+    }
+}
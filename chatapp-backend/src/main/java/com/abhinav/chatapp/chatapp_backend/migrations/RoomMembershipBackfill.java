@@ -0,0 +1,80 @@
+package com.abhinav.chatapp.chatapp_backend.migrations;
+
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomMembershipRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Fills room_memberships from the participants maps of existing rooms. Every row is
+ * an upsert on (userId, roomId), so running it again only rewrites roles; rooms are
+ * read with just roomId and participants.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Profile("!inmemory")
+public class RoomMembershipBackfill implements SmartInitializingSingleton {
+
+    private static final String ROOMS = "rooms";
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final RoomMembershipRepository roomMembershipRepository;
+
+    @Value("${app.migrations.backfill-room-memberships:true}")
+    private boolean enabled;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+
+        Query rooms = new Query();
+        rooms.fields().include("roomId").include("participants");
+
+        List<RoomMembership> batch = new ArrayList<>(BATCH_SIZE);
+        long written = 0;
+        try (Stream<Document> stream = mongoTemplate.stream(rooms, Document.class, ROOMS)) {
+            for (Document room : (Iterable<Document>) stream::iterator) {
+                String roomId = room.getString("roomId");
+                Document participants = room.get("participants", Document.class);
+                if (roomId == null || participants == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Object> participant : participants.entrySet()) {
+                    batch.add(new RoomMembership(null, participant.getKey(), roomId, Role.valueOf(participant.getValue().toString())));
+                    if (batch.size() == BATCH_SIZE) {
+                        written += flush(batch);
+                    }
+                }
+            }
+        }
+        written += flush(batch);
+
+        if (written > 0) {
+            log.info("Backfilled {} room memberships", written);
+        }
+    }
+
+    private int flush(List<RoomMembership> batch) {
+        int size = batch.size();
+        roomMembershipRepository.upsertAll(batch);
+        batch.clear();
+        return size;
+    }
+}
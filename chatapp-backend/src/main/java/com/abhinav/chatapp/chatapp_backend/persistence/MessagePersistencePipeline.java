@@ -0,0 +1,361 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.enums.DurabilityMode;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.SequenceConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write path for chat messages.
+ * <ul>
+ *     <li>{@code SYNC} inserts on the caller thread.</li>
+ *     <li>{@code GROUP_COMMIT} queues the message and lets the caller wait for its batch;
+ *     a batch is whatever queued up while the previous one was being written.</li>
+ *     <li>{@code ASYNC} queues the message and returns at once; the writer lingers up to
+ *     {@code flush-interval-ms} to fill a batch.</li>
+ * </ul>
+ * The queue is bounded: when it stays full for {@code offer-timeout-ms} the send is
+ * rejected instead of piling up in memory. Queued messages are flushed on shutdown.
+ * <p>
+ * A batch that still fails after {@code max-retries} fails its senders in GROUP_COMMIT
+ * mode. In ASYNC mode it was already broadcast, so it is kept in a bounded dead-letter
+ * queue and tried again every {@code dead-letter-retry-ms}, including once more on
+ * shutdown. Messages given up on are counted by {@code chat.messages.dropped}, tagged
+ * {@code rejected} (the sender got an error) or {@code lost} (already broadcast);
+ * {@code chat.messages.deferred} is the dead-letter depth.
+ * <p>
+ * After each write the rooms' last-message fields are moved forward once per room,
+ * which is what the room list reads instead of the messages collection.
+ */
+@Component
+@Slf4j
+public class MessagePersistencePipeline {
+
+    private final MessageRepository messageRepository;
+    private final RoomRepository roomRepository;
+
+    @Value("${app.messages.durability:GROUP_COMMIT}")
+    private DurabilityMode mode;
+
+    @Value("${app.messages.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.messages.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.messages.write-behind.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    @Value("${app.messages.write-behind.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.messages.write-behind.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+
+    @Value("${app.messages.write-behind.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${app.messages.write-behind.dead-letter-capacity:100000}")
+    private int deadLetterCapacity;
+
+    @Value("${app.messages.write-behind.dead-letter-retry-ms:5000}")
+    private long deadLetterRetryMs;
+
+    private final Counter rejected;
+    private final Counter lost;
+    private BlockingQueue<PendingWrite> queue;
+    //written by the writer thread only
+    private BlockingDeque<PendingWrite> deadLetters;
+    private long nextDeadLetterRetry;
+    private Thread writer;
+    private volatile boolean running;
+
+    public MessagePersistencePipeline(MessageRepository messageRepository, RoomRepository roomRepository,
+                                      MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.roomRepository = roomRepository;
+        this.rejected = droppedCounter(meterRegistry, "rejected");
+        this.lost = droppedCounter(meterRegistry, "lost");
+        Gauge.builder("chat.messages.deferred", this, MessagePersistencePipeline::getDeferredCount)
+                .description("Already broadcast messages waiting for a retry of their failed write")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        deadLetters = new LinkedBlockingDeque<>(Math.max(1, deadLetterCapacity));
+        running = true;
+        if (mode != DurabilityMode.SYNC) {
+            writer = new Thread(this::runWriter, "message-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        log.info("Message persistence running in {} mode", mode);
+    }
+
+    public CompletableFuture<Void> submit(Message message) {
+        if (mode == DurabilityMode.SYNC) {
+            messageRepository.insert(message);
+            recordRoomActivity(List.of(message));
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!running) {
+            throw new RuntimeException("Message store is shutting down");
+        }
+
+        PendingWrite write = new PendingWrite(message, new CompletableFuture<>());
+        try {
+            if (!queue.offer(write, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Message queue is full, try again later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing message", ex);
+        }
+        return write.stored();
+    }
+
+    //blocks only in GROUP_COMMIT mode; SYNC is already stored and ASYNC never waits
+    public void awaitDurability(CompletableFuture<Void> stored) {
+        if (mode != DurabilityMode.GROUP_COMMIT) {
+            return;
+        }
+        try {
+            stored.get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while storing message", ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new RuntimeException("Message could not be stored", ex);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getDeferredCount() {
+        return deadLetters == null ? 0 : deadLetters.size();
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+            if (!queue.isEmpty() || !deadLetters.isEmpty()) {
+                log.error("Shutting down with {} unsaved messages", queue.size() + deadLetters.size());
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                retryDeadLetters();
+                PendingWrite first = queue.poll(Math.max(flushIntervalMs, 10), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+                if (mode == DurabilityMode.ASYNC && running) {
+                    lingerForBatch(batch);
+                }
+                flush(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+        //last chance for earlier failures, whatever still fails now is lost
+        nextDeadLetterRetry = System.nanoTime();
+        while (!deadLetters.isEmpty() && retryDeadLetters()) {
+            nextDeadLetterRetry = System.nanoTime();
+        }
+        List<PendingWrite> remaining = new ArrayList<>();
+        deadLetters.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.error("Lost {} broadcast messages that could not be stored before shutdown", remaining.size());
+            remaining.forEach(write -> giveUp(write, lost, new RuntimeException("Message store shut down")));
+        }
+    }
+
+    private void lingerForBatch(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        RuntimeException failure = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            failure = store(batch);
+            if (failure == null) {
+                return;
+            }
+            log.warn("Storing {} messages failed (attempt {}): {}", batch.size(), attempt + 1, failure.getMessage());
+            if (!backoff(attempt)) {
+                break;
+            }
+        }
+
+        if (mode != DurabilityMode.ASYNC) {
+            log.error("Failing {} messages after {} attempts", batch.size(), maxRetries + 1, failure);
+            for (PendingWrite write : batch) {
+                giveUp(write, rejected, failure);
+            }
+            return;
+        }
+        //already broadcast: keep them for a later retry rather than lose them
+        int kept = 0;
+        for (PendingWrite write : batch) {
+            if (deadLetters.offerLast(write)) {
+                kept++;
+            } else {
+                giveUp(write, lost, failure);
+            }
+        }
+        if (kept < batch.size()) {
+            log.error("Lost {} broadcast messages, the dead-letter queue is full", batch.size() - kept, failure);
+        }
+        log.warn("Deferred {} messages after {} attempts, {} waiting for a retry", kept, maxRetries + 1, deadLetters.size());
+        nextDeadLetterRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadLetterRetryMs);
+    }
+
+    //one attempt for the oldest deferred batch once the retry delay is over; false when it failed again
+    private boolean retryDeadLetters() {
+        if (deadLetters.isEmpty() || System.nanoTime() - nextDeadLetterRetry < 0) {
+            return true;
+        }
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        deadLetters.drainTo(batch, batchSize);
+        RuntimeException failure = store(batch);
+        if (failure == null) {
+            log.info("Stored {} deferred messages, {} still waiting", batch.size(), deadLetters.size());
+            return true;
+        }
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            deadLetters.offerFirst(batch.get(i));
+        }
+        nextDeadLetterRetry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadLetterRetryMs);
+        log.warn("Retrying {} deferred messages failed: {}", deadLetters.size(), failure.getMessage());
+        return false;
+    }
+
+    //null once stored; inserts are idempotent, rows of an earlier partial attempt count as stored
+    private RuntimeException store(List<PendingWrite> batch) {
+        List<Message> messages = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            messages.add(write.message());
+        }
+        Set<Message> conflicting = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            messageRepository.insertBatch(messages);
+        } catch (SequenceConflictException ex) {
+            //no retry can store these, and everything else in the batch is in
+            log.error("Dropping {} messages whose sequence holds another message", ex.getConflicting().size());
+            conflicting.addAll(ex.getConflicting());
+            for (PendingWrite write : batch) {
+                if (conflicting.contains(write.message())) {
+                    giveUp(write, mode == DurabilityMode.ASYNC ? lost : rejected, ex);
+                }
+            }
+        } catch (RuntimeException ex) {
+            return ex;
+        }
+        List<Message> stored = new ArrayList<>(messages.size());
+        for (PendingWrite write : batch) {
+            if (!conflicting.contains(write.message())) {
+                write.stored().complete(null);
+                stored.add(write.message());
+            }
+        }
+        if (!stored.isEmpty()) {
+            recordRoomActivity(stored);
+        }
+        return null;
+    }
+
+    private static void giveUp(PendingWrite write, Counter counter, RuntimeException failure) {
+        counter.increment();
+        write.stored().completeExceptionally(failure);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("chat.messages.dropped")
+                .description("Messages whose write was given up on")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    //best effort: a miss only leaves a stale preview until the room's next message
+    private void recordRoomActivity(List<Message> messages) {
+        Map<String, Message> newestPerRoom = new HashMap<>();
+        for (Message message : messages) {
+            newestPerRoom.merge(message.getRoomId(), message,
+                    (current, candidate) -> candidate.getSequence() > current.getSequence() ? candidate : current);
+        }
+        try {
+            roomRepository.recordLastMessages(newestPerRoom.values());
+        } catch (RuntimeException ex) {
+            log.warn("Updating last activity of {} rooms failed: {}", newestPerRoom.size(), ex.getMessage());
+        }
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(100L << Math.min(attempt, 6));
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record PendingWrite(Message message, CompletableFuture<Void> stored) {
+    }
+}
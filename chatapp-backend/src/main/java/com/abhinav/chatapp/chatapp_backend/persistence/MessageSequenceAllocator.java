@@ -0,0 +1,57 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out per-room message sequences from blocks reserved in the database, so
+ * only one in every {@code blockSize} sends pays for a counter round trip.
+ * Sequences stay strictly increasing per room; the unused rest of a block is
+ * skipped after a restart, which leaves a gap but never a duplicate.
+ */
+@Component
+public class MessageSequenceAllocator {
+
+    private final MessageRepository messageRepository;
+    private final Map<String, Range> ranges = new ConcurrentHashMap<>();
+
+    @Value("${app.messages.sequence-block-size:100}")
+    private int blockSize;
+
+    public MessageSequenceAllocator(MessageRepository messageRepository) {
+        this.messageRepository = messageRepository;
+    }
+
+    public long next(String roomId) {
+        Range range = ranges.computeIfAbsent(roomId, id -> new Range());
+        synchronized (range) {
+            if (range.next > range.last) {
+                int size = Math.max(1, blockSize);
+                range.last = messageRepository.reserveSequences(roomId, size);
+                range.next = range.last - size + 1;
+            }
+            return range.next++;
+        }
+    }
+
+    //the last sequence this node handed out for the room, empty when it has handed out none
+    public OptionalLong lastIssued(String roomId) {
+        Range range = ranges.get(roomId);
+        if (range == null) {
+            return OptionalLong.empty();
+        }
+        synchronized (range) {
+            return range.next > 1 ? OptionalLong.of(range.next - 1) : OptionalLong.empty();
+        }
+    }
+
+    private static final class Range {
+        private long next = 1;
+        private long last = 0;
+    }
+}
@@ -0,0 +1,314 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver-level command listener behind /api/admin/diagnostics/mongo.
+ * <ul>
+ *     <li>Keeps count, total and max time per collection and command.</li>
+ *     <li>Keeps the last {@code slow-log-size} commands slower than {@code slow-ms}.</li>
+ *     <li>Explains each new query shape (filter and sort with the values stripped) once,
+ *     off the driver thread, and records shapes whose winning plan is a collection scan.</li>
+ * </ul>
+ * Registered on the Mongo client settings by MongoConfig.
+ */
+@Component
+@Slf4j
+@Profile("!inmemory")
+public class MongoCommandProfiler implements CommandListener {
+
+    private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct", "findAndModify");
+    //the profiler's own explains and connection handshakes
+    private static final Set<String> IGNORED = Set.of("explain", "hello", "isMaster", "ismaster", "saslStart", "saslContinue", "ping", "buildInfo", "endSessions");
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, CollectionScan> collectionScans = new ConcurrentHashMap<>();
+    private final Deque<SlowOperation> slowOperations = new ArrayDeque<>();
+    private final Cache<String, Boolean> explainedShapes;
+    private final ExecutorService explainer;
+
+    @Value("${app.mongo.profiler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mongo.profiler.slow-ms:100}")
+    private long slowMs;
+
+    @Value("${app.mongo.profiler.slow-log-size:200}")
+    private int slowLogSize;
+
+    @Value("${app.mongo.profiler.explain-new-shapes:true}")
+    private boolean explainNewShapes;
+
+    public MongoCommandProfiler(ObjectProvider<MongoTemplate> mongoTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.mongo.profiler.max-shapes:5000}") long maxShapes) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.explainedShapes = Caffeine.newBuilder().maximumSize(maxShapes).build();
+        //one thread and a short queue: explains are best effort and dropped when it falls behind
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mongo-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled || IGNORED.contains(event.getCommandName())) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        String collection = collectionOf(event.getCommandName(), command);
+        String shape = null;
+        if (EXPLAINABLE.contains(event.getCommandName()) && collection != null) {
+            shape = event.getCommandName() + " " + collection + " " + shapeOf(command);
+            if (explainNewShapes && explainedShapes.asMap().putIfAbsent(shape, Boolean.TRUE) == null) {
+                //the command document is only valid during this callback
+                scheduleExplain(event.getDatabaseName(), collection, shape, command.clone());
+            }
+        }
+        inFlight.put(event.getRequestId(), new InFlight(collection, shape));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        finish(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        finish(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    public Collection<OperationStats> getStats() {
+        return List.copyOf(stats.values());
+    }
+
+    public List<SlowOperation> getSlowOperations() {
+        synchronized (slowOperations) {
+            return new ArrayList<>(slowOperations);
+        }
+    }
+
+    public Collection<CollectionScan> getCollectionScans() {
+        return List.copyOf(collectionScans.values());
+    }
+
+    public long getSlowThresholdMs() {
+        return slowMs;
+    }
+
+    @PreDestroy
+    public void stop() {
+        explainer.shutdownNow();
+    }
+
+    private void finish(int requestId, String commandName, long elapsedNanos, boolean failed) {
+        InFlight started = inFlight.remove(requestId);
+        if (started == null) {
+            return;
+        }
+        String collection = started.collection() != null ? started.collection() : "-";
+        stats.computeIfAbsent(collection + " " + commandName, key -> new OperationStats(collection, commandName))
+                .record(elapsedNanos, failed);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (elapsedMs >= slowMs) {
+            meterRegistry.counter("mongo.slow.operations", "collection", collection, "command", commandName).increment();
+            SlowOperation slow = new SlowOperation(Instant.now(), collection, commandName, started.shape(), elapsedMs, failed);
+            synchronized (slowOperations) {
+                if (slowOperations.size() == slowLogSize) {
+                    slowOperations.removeFirst();
+                }
+                slowOperations.addLast(slow);
+            }
+            log.warn("Slow Mongo {} on {} took {} ms: {}", commandName, collection, elapsedMs, started.shape());
+        }
+    }
+
+    private void scheduleExplain(String database, String collection, String shape, BsonDocument command) {
+        explainer.execute(() -> {
+            try {
+                BsonDocument explain = new BsonDocument("explain", strip(command))
+                        .append("verbosity", new BsonString("queryPlanner"));
+                Document result = mongoTemplate.getObject().getMongoDatabaseFactory().getMongoDatabase(database).runCommand(explain);
+                if (containsCollectionScan(result)) {
+                    meterRegistry.counter("mongo.collection.scans", "collection", collection).increment();
+                    collectionScans.computeIfAbsent(shape, key -> new CollectionScan(collection, shape, Instant.now()));
+                    log.warn("Collection scan on {}: {}", collection, shape);
+                }
+            } catch (RuntimeException ex) {
+                log.debug("Could not explain {}: {}", shape, ex.getMessage());
+            }
+        });
+    }
+
+    //drop session, cluster-time and other driver fields that explain rejects
+    private BsonDocument strip(BsonDocument command) {
+        BsonDocument stripped = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber") && !key.equals("cursor")) {
+                stripped.append(key, value);
+            }
+        });
+        if (command.containsKey("pipeline")) {
+            stripped.append("cursor", new BsonDocument());
+        }
+        return stripped;
+    }
+
+    private boolean containsCollectionScan(Object node) {
+        if (node instanceof Document document) {
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(this::containsCollectionScan);
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(this::containsCollectionScan);
+        }
+        return false;
+    }
+
+    private String collectionOf(String commandName, BsonDocument command) {
+        BsonValue target = command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : null;
+    }
+
+    private String shapeOf(BsonDocument command) {
+        StringBuilder shape = new StringBuilder();
+        for (String part : List.of("filter", "query", "sort", "pipeline", "key")) {
+            BsonValue value = command.get(part);
+            if (value != null) {
+                shape.append(part).append('=');
+                appendShape(shape, value);
+                shape.append(' ');
+            }
+        }
+        return shape.toString().trim();
+    }
+
+    //field names and operators are kept, values become ?
+    private void appendShape(StringBuilder shape, BsonValue value) {
+        if (value.isDocument()) {
+            shape.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                if (!first) {
+                    shape.append(',');
+                }
+                first = false;
+                shape.append(entry.getKey()).append(':');
+                appendShape(shape, entry.getValue());
+            }
+            shape.append('}');
+        } else if (value.isArray() && isArrayOfDocuments(value.asArray())) {
+            shape.append('[');
+            value.asArray().forEach(element -> appendShape(shape, element));
+            shape.append(']');
+        } else {
+            shape.append('?');
+        }
+    }
+
+    private boolean isArrayOfDocuments(BsonArray array) {
+        return !array.isEmpty() && array.stream().allMatch(BsonValue::isDocument);
+    }
+
+    private record InFlight(String collection, String shape) {
+    }
+
+    public record SlowOperation(Instant at, String collection, String command, String shape, long elapsedMs, boolean failed) {
+    }
+
+    public record CollectionScan(String collection, String shape, Instant firstSeen) {
+    }
+
+    public static class OperationStats {
+        private final String collection;
+        private final String command;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        OperationStats(String collection, String command) {
+            this.collection = collection;
+            this.command = command;
+        }
+
+        void record(long elapsedNanos, boolean failed) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public double getMeanMs() {
+            long calls = count.sum();
+            return calls == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / calls;
+        }
+
+        public double getMaxMs() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the entities ({@code @Indexed}, {@code @CompoundIndex})
+ * at startup and then reads them back from the server, so a missing or non-unique index
+ * shows up in the log and on the diagnostics endpoint instead of as slow queries.
+ * Creating an index that already exists is a no-op. A unique index that cannot be built
+ * because of duplicate data is reported; with {@code app.mongo.indexes.fail-fast} the
+ * application refuses to start instead.
+ */
+@Component
+@Slf4j
+@Profile("!inmemory")
+public class MongoIndexManager implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.mongo.indexes.fail-fast:false}")
+    private boolean failFast;
+
+    private volatile List<IndexStatus> report = List.of();
+
+    public MongoIndexManager(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        IndexResolver resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        List<IndexStatus> statuses = new ArrayList<>();
+
+        for (MongoPersistentEntity<?> entity : mongoTemplate.getConverter().getMappingContext().getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getCollection());
+            List<IndexDefinition> declared = new ArrayList<>();
+            resolver.resolveIndexFor(entity.getType()).forEach(declared::add);
+
+            for (IndexDefinition definition : declared) {
+                try {
+                    indexOps.createIndex(definition);
+                } catch (RuntimeException ex) {
+                    log.error("Could not create index {} on {}: {}", definition.getIndexKeys(), entity.getCollection(), ex.getMessage());
+                }
+            }
+
+            List<IndexInfo> existing = indexOps.getIndexInfo();
+            for (IndexDefinition definition : declared) {
+                statuses.add(verify(entity.getCollection(), definition, existing));
+            }
+        }
+
+        report = Collections.unmodifiableList(statuses);
+        List<IndexStatus> missing = statuses.stream().filter(status -> !status.ok()).toList();
+        if (missing.isEmpty()) {
+            log.info("Verified {} Mongo indexes", statuses.size());
+            return;
+        }
+        missing.forEach(status -> log.error("Index {} on {} is not usable: {}", status.keys(), status.collection(), status.problem()));
+        if (failFast) {
+            throw new RuntimeException(missing.size() + " required Mongo indexes are missing or not unique, see log");
+        }
+    }
+
+    public List<IndexStatus> getReport() {
+        return report;
+    }
+
+    private IndexStatus verify(String collection, IndexDefinition definition, List<IndexInfo> existing) {
+        Document keys = definition.getIndexKeys();
+        boolean unique = definition.getIndexOptions().getBoolean("unique", false);
+
+        for (IndexInfo info : existing) {
+            if (!sameKeys(keys, info.getIndexFields())) {
+                continue;
+            }
+            if (unique && !info.isUnique()) {
+                return new IndexStatus(collection, keys.toJson(), true, false, "exists but is not unique");
+            }
+            return new IndexStatus(collection, keys.toJson(), unique, true, null);
+        }
+        return new IndexStatus(collection, keys.toJson(), unique, false, "not found on the server");
+    }
+
+    private boolean sameKeys(Document keys, List<IndexField> fields) {
+        if (keys.size() != fields.size()) {
+            return false;
+        }
+        int position = 0;
+        for (String key : keys.keySet()) {
+            if (!key.equals(fields.get(position++).getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public record IndexStatus(String collection, String keys, boolean unique, boolean ok, String problem) {
+    }
+}
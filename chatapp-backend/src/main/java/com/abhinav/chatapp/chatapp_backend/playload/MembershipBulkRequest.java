@@ -0,0 +1,24 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MembershipBulkRequest {
+    private List<Operation> operations;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Operation {
+        private String userId;
+        //role to add the user with or change them to; null removes the user
+        private Role role;
+    }
+}
@@ -0,0 +1,16 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MembershipChange {
+    private String userId;
+    //null when the user was not a member before / is not a member after
+    private Role previousRole;
+    private Role role;
+}
@@ -0,0 +1,16 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//what a membership update changed; operations that were already in effect are left out
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MembershipDelta {
+    private String roomId;
+    private List<MembershipChange> changes;
+}
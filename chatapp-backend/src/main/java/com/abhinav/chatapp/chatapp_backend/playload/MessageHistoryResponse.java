@@ -0,0 +1,19 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessageHistoryResponse {
+    //always ordered oldest first
+    private List<Message> messages;
+    //pass back as before (older pages) or after (newer pages) to continue, null when there is nothing left
+    private Long nextCursor;
+    private boolean hasMore;
+}
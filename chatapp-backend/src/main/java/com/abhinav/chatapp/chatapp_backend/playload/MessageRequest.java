@@ -15,4 +15,6 @@ public class MessageRequest {
     private String content;
     private String sender;
     private String roomId;
+    //unique per message on the client (e.g. a UUID), repeated on retries
+    private String clientMessageId;
 }
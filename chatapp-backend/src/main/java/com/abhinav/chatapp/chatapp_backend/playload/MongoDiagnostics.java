@@ -0,0 +1,22 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import com.abhinav.chatapp.chatapp_backend.persistence.MongoCommandProfiler;
+import com.abhinav.chatapp.chatapp_backend.persistence.MongoIndexManager;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MongoDiagnostics {
+    private List<MongoIndexManager.IndexStatus> indexes;
+    private long slowThresholdMs;
+    private Collection<MongoCommandProfiler.OperationStats> operations;
+    //oldest first
+    private List<MongoCommandProfiler.SlowOperation> slowOperations;
+    private Collection<MongoCommandProfiler.CollectionScan> collectionScans;
+}
@@ -0,0 +1,17 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+//who is present in a room through one node, as of that node's version
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NodePresence {
+    private String nodeId;
+    private long version;
+    private Set<String> users;
+}
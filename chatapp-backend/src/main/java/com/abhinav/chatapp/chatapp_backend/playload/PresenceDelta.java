@@ -0,0 +1,27 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Changes to one node's share of a room's presence. Versions count per room and node,
+ * so a client keeps one version per nodeId: a delta whose fromVersion matches applies,
+ * one whose version it already holds is a duplicate, and a node it does not know yet
+ * starts at fromVersion 0. Anything else means a missed delta and calls for a snapshot.
+ * A nodeDown delta says the node is gone; drop everything known from it.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceDelta {
+    private String roomId;
+    private String nodeId;
+    private long fromVersion;
+    private long version;
+    private Set<String> joined;
+    private Set<String> left;
+    private boolean nodeDown;
+}
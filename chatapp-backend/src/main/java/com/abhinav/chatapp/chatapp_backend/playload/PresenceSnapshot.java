@@ -0,0 +1,19 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceSnapshot {
+    private String roomId;
+    //everyone present through any node
+    private Set<String> users;
+    //per-node members and the version deltas from that node continue from
+    private List<NodePresence> nodes;
+}
@@ -0,0 +1,24 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//first frame on a room subscription, live messages follow
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomSnapshot {
+    private String roomId;
+    //oldest first
+    private List<Message> messages;
+    //sequence the snapshot runs up to, 0 for an empty room; live messages at or below it are duplicates
+    private long watermark;
+    //older messages exist, page back with before = the first message's sequence
+    private boolean hasMore;
+    //true when messages are only those after the client's last-sequence, merge instead of replacing
+    private boolean delta;
+}
@@ -0,0 +1,21 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//what the room picker needs: no participants map, no messages
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomSummary {
+    private String id;
+    //rooms have no separate display name, the roomId is what users type and see
+    private String roomId;
+    private int memberCount;
+    private String lastMessagePreview;
+    private String lastMessageSender;
+    private LocalDateTime lastActivityAt;
+}
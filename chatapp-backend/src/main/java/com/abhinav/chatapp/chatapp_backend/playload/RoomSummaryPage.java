@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.playload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RoomSummaryPage {
+    //most recently active first
+    private List<RoomSummary> rooms;
+    private int page;
+    private int size;
+    private boolean hasMore;
+}
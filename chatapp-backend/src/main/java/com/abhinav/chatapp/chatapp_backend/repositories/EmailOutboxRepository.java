@@ -0,0 +1,7 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface EmailOutboxRepository extends MongoRepository<EmailOutboxMessage, String>, EmailOutboxRepositoryCustom {
+}
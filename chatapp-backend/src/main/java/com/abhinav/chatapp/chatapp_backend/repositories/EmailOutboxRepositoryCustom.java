@@ -0,0 +1,15 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepositoryCustom {
+    //atomically mark up to limit due messages as SENDING and return them
+    List<EmailOutboxMessage> claimDue(int limit, LocalDateTime now, Duration lease);
+
+    //mark pending messages past their expiry as EXPIRED, returns how many
+    long expireStale(LocalDateTime now);
+}
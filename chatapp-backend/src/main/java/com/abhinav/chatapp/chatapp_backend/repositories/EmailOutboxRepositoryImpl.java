@@ -0,0 +1,64 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+import com.abhinav.chatapp.chatapp_backend.enums.OutboxStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class EmailOutboxRepositoryImpl implements EmailOutboxRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<EmailOutboxMessage> claimDue(int limit, LocalDateTime now, Duration lease) {
+        Query due = new Query(new Criteria().andOperator(
+                new Criteria().orOperator(
+                        where("status").is(OutboxStatus.PENDING).and("nextAttemptAt").lte(now),
+                        where("status").is(OutboxStatus.SENDING).and("lockedUntil").lt(now)),
+                //a record past its expiry is left to expireStale, even if it was expired after that ran
+                new Criteria().orOperator(
+                        where("expiresAt").is(null),
+                        where("expiresAt").gt(now))
+        )).with(Sort.by("nextAttemptAt"));
+        Update claim = new Update()
+                .set("status", OutboxStatus.SENDING)
+                .set("lockedUntil", now.plus(lease));
+
+        List<EmailOutboxMessage> claimed = new ArrayList<>();
+        while (claimed.size() < limit) {
+            EmailOutboxMessage message = mongoTemplate.findAndModify(
+                    due, claim, FindAndModifyOptions.options().returnNew(true), EmailOutboxMessage.class);
+            if (message == null) {
+                break;
+            }
+            claimed.add(message);
+        }
+        return claimed;
+    }
+
+    @Override
+    public long expireStale(LocalDateTime now) {
+        return mongoTemplate.updateMulti(
+                //a SENDING record whose lease lapsed was abandoned by a dispatcher that died mid-send
+                query(where("expiresAt").lt(now).orOperator(
+                        where("status").is(OutboxStatus.PENDING),
+                        where("status").is(OutboxStatus.SENDING).and("lockedUntil").lt(now))),
+                new Update().set("status", OutboxStatus.EXPIRED).unset("lockedUntil"),
+                EmailOutboxMessage.class
+        ).getModifiedCount();
+    }
+}
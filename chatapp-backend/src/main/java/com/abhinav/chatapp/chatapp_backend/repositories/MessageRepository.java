@@ -0,0 +1,21 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface MessageRepository extends MongoRepository<Message, String>, MessageRepositoryCustom {
+    //newest first, served by the roomId + sequence index
+    List<Message> findByRoomIdOrderBySequenceDesc(String roomId, Pageable pageable);
+
+    //keyset pages: older than a cursor (newest first) and newer than a cursor (oldest first)
+    List<Message> findByRoomIdAndSequenceLessThanOrderBySequenceDesc(String roomId, long sequence, Pageable pageable);
+
+    List<Message> findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(String roomId, long sequence, Pageable pageable);
+
+    //served by the partial unique index behind send dedup
+    Optional<Message> findByRoomIdAndUserIdAndClientMessageId(String roomId, String userId, String clientMessageId);
+}
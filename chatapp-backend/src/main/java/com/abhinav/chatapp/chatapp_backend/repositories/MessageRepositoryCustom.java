@@ -0,0 +1,17 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+
+import java.util.List;
+
+public interface MessageRepositoryCustom {
+    //atomically reserve the next count sequences of a room, returns the highest one reserved
+    long reserveSequences(String roomId, int count);
+
+    //raise the room counter to at least the given value, used when importing history
+    void ensureSequenceAtLeast(String roomId, long sequence);
+
+    //unordered bulk insert; messages already stored under the same room + sequence are skipped,
+    //SequenceConflictException lists those whose room + sequence holds a different message
+    void insertBatch(List<Message> messages);
+}
@@ -0,0 +1,101 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.mongodb.ErrorCategory;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    static final String SEQUENCE_COLLECTION = "message_sequences";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long reserveSequences(String roomId, int count) {
+        Document counter = mongoTemplate.findAndModify(
+                query(where("_id").is(roomId)),
+                new Update().inc("value", (long) count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class,
+                SEQUENCE_COLLECTION
+        );
+        return ((Number) counter.get("value")).longValue();
+    }
+
+    @Override
+    public void ensureSequenceAtLeast(String roomId, long sequence) {
+        mongoTemplate.upsert(
+                query(where("_id").is(roomId)),
+                new Update().max("value", sequence),
+                SEQUENCE_COLLECTION
+        );
+    }
+
+    @Override
+    public void insertBatch(List<Message> messages) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class)
+                    .insert(messages)
+                    .execute();
+        } catch (BulkOperationException ex) {
+            boolean onlyDuplicates = ex.getErrors().stream()
+                    .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw ex;
+            }
+            //a retried batch may hit rows that made it in on the previous attempt, but the row
+            //under a sequence may just as well be another message
+            List<Message> duplicates = ex.getErrors().stream().map(error -> messages.get(error.getIndex())).toList();
+            List<Message> conflicting = notStored(duplicates);
+            if (!conflicting.isEmpty()) {
+                throw new SequenceConflictException(conflicting);
+            }
+        }
+    }
+
+    //the messages whose room + sequence holds something other than them
+    private List<Message> notStored(List<Message> messages) {
+        Map<String, List<Long>> sequencesByRoom = new HashMap<>();
+        for (Message message : messages) {
+            sequencesByRoom.computeIfAbsent(message.getRoomId(), roomId -> new ArrayList<>()).add(message.getSequence());
+        }
+        Query stored = new Query(new Criteria().orOperator(sequencesByRoom.entrySet().stream()
+                .map(room -> where("roomId").is(room.getKey()).and("sequence").in(room.getValue()))
+                .toArray(Criteria[]::new)));
+        stored.fields().include("roomId").include("sequence").include("sender").include("content").include("clientMessageId");
+        Map<String, Message> bySlot = new HashMap<>();
+        for (Message row : mongoTemplate.find(stored, Message.class)) {
+            bySlot.put(row.getRoomId() + "/" + row.getSequence(), row);
+        }
+
+        List<Message> conflicting = new ArrayList<>();
+        for (Message message : messages) {
+            Message row = bySlot.get(message.getRoomId() + "/" + message.getSequence());
+            if (row == null
+                    || !Objects.equals(row.getSender(), message.getSender())
+                    || !Objects.equals(row.getContent(), message.getContent())
+                    || !Objects.equals(row.getClientMessageId(), message.getClientMessageId())) {
+                conflicting.add(message);
+            }
+        }
+        return conflicting;
+    }
+}
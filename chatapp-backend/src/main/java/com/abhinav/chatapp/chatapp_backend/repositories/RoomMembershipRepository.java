@@ -0,0 +1,10 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface RoomMembershipRepository extends MongoRepository<RoomMembership, String>, RoomMembershipRepositoryCustom {
+    List<RoomMembership> findByUserId(String userId);
+}
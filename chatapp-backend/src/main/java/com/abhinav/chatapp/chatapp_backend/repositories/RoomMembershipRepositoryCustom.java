@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+
+import java.util.Collection;
+
+public interface RoomMembershipRepositoryCustom {
+    //insert or change the role of one membership, keyed by (userId, roomId)
+    void upsert(String roomId, String userId, Role role);
+
+    void remove(String roomId, String userId);
+
+    //one round trip each
+    void upsertAll(Collection<RoomMembership> memberships);
+
+    void removeAll(String roomId, Collection<String> userIds);
+}
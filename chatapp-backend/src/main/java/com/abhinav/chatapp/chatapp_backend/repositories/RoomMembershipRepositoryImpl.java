@@ -0,0 +1,54 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class RoomMembershipRepositoryImpl implements RoomMembershipRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void upsert(String roomId, String userId, Role role) {
+        mongoTemplate.upsert(key(roomId, userId), new Update().set("role", role), RoomMembership.class);
+    }
+
+    @Override
+    public void remove(String roomId, String userId) {
+        mongoTemplate.remove(key(roomId, userId), RoomMembership.class);
+    }
+
+    @Override
+    public void upsertAll(Collection<RoomMembership> memberships) {
+        if (memberships.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RoomMembership.class);
+        for (RoomMembership membership : memberships) {
+            bulk.upsert(key(membership.getRoomId(), membership.getUserId()), new Update().set("role", membership.getRole()));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public void removeAll(String roomId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.remove(query(where("roomId").is(roomId).and("userId").in(userIds)), RoomMembership.class);
+    }
+
+    private Query key(String roomId, String userId) {
+        return query(where("userId").is(userId).and("roomId").is(roomId));
+    }
+}
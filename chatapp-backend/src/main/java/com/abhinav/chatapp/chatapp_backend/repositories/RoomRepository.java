@@ -4,7 +4,9 @@ package com.abhinav.chatapp.chatapp_backend.repositories;
 import com.abhinav.chatapp.chatapp_backend.entities.Room;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface RoomRepository extends MongoRepository<Room, String> {
+public interface RoomRepository extends MongoRepository<Room, String>, RoomRepositoryCustom {
     //get room using room id
     Room findByRoomId(String roomId);
-}
\ No newline at end of file
+
+    boolean existsByRoomId(String roomId);
+}
@@ -0,0 +1,36 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface RoomRepositoryCustom {
+    int PREVIEW_LENGTH = 120;
+
+    //summaries ordered by last activity, limited to roomIds when it is not null
+    List<RoomSummary> findSummaries(Collection<String> roomIds, long skip, int limit);
+
+    /**
+     * Sets or removes participants in one atomic update of the room document; a null
+     * role removes the user. Returns the room's id, roomId and participants as they
+     * were before the update, or empty when the room does not exist.
+     */
+    Optional<Room> updateParticipants(String roomId, Map<String, Role> roles);
+
+    //moves each room's last-message fields forward, never back, to the given messages
+    void recordLastMessages(Collection<Message> newestPerRoom);
+
+    //the stored preview is the start of the message
+    static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+}
@@ -0,0 +1,91 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummary;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class RoomRepositoryImpl implements RoomRepositoryCustom {
+
+    //counted on the server so the participants map never leaves Mongo
+    private static final AggregationExpression MEMBER_COUNT = context -> new Document("$size",
+            new Document("$objectToArray", new Document("$ifNull", List.of("$participants", new Document()))));
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<RoomSummary> findSummaries(Collection<String> roomIds, long skip, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (roomIds != null) {
+            stages.add(Aggregation.match(where("roomId").in(roomIds)));
+        }
+        stages.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "lastActivityAt").and(Sort.by("roomId"))));
+        stages.add(Aggregation.skip(skip));
+        stages.add(Aggregation.limit(limit));
+        stages.add(Aggregation.project("roomId", "lastMessagePreview", "lastMessageSender", "lastActivityAt")
+                .and(MEMBER_COUNT).as("memberCount"));
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(stages), Room.class, RoomSummary.class)
+                .getMappedResults();
+    }
+
+    @Override
+    public Optional<Room> updateParticipants(String roomId, Map<String, Role> roles) {
+        Update update = new Update();
+        roles.forEach((userId, role) -> {
+            if (role == null) {
+                update.unset("participants." + userId);
+            } else {
+                update.set("participants." + userId, role);
+            }
+        });
+
+        //the previous participants are small and let the caller work out the delta
+        Query room = query(where("roomId").is(roomId));
+        room.fields().include("roomId").include("participants");
+        return Optional.ofNullable(mongoTemplate.findAndModify(room, update,
+                FindAndModifyOptions.options().returnNew(false), Room.class));
+    }
+
+    @Override
+    public void recordLastMessages(Collection<Message> newestPerRoom) {
+        if (newestPerRoom.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Room.class);
+        for (Message message : newestPerRoom) {
+            //batches can land out of order after a retry, only a newer sequence may overwrite
+            Criteria newer = where("roomId").is(message.getRoomId())
+                    .orOperator(where("lastMessageSequence").lt(message.getSequence()),
+                            where("lastMessageSequence").exists(false));
+            bulk.updateOne(query(newer), new Update()
+                    .set("lastMessageSequence", message.getSequence())
+                    .set("lastMessagePreview", RoomRepositoryCustom.preview(message.getContent()))
+                    .set("lastMessageSender", message.getSender())
+                    .set("lastActivityAt", message.getTimeStamp()));
+        }
+        bulk.execute();
+    }
+}
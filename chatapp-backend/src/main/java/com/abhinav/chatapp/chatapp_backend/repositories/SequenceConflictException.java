@@ -0,0 +1,20 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+
+import java.util.List;
+
+//the sequences of these messages are taken by other messages; the rest of their batch is stored
+public class SequenceConflictException extends RuntimeException {
+
+    private final transient List<Message> conflicting;
+
+    public SequenceConflictException(List<Message> conflicting) {
+        super(conflicting.size() + " message sequences are already taken by other messages");
+        this.conflicting = List.copyOf(conflicting);
+    }
+
+    public List<Message> getConflicting() {
+        return conflicting;
+    }
+}
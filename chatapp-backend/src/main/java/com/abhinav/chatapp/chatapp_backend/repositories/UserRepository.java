@@ -5,6 +5,6 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String>  {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom  {
     Optional<User> findByEmail(String email);
 }
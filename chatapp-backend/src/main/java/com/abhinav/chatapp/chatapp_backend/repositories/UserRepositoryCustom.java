@@ -0,0 +1,10 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.utils.ConnectionActivity;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    //one unordered bulk of $set updates on the websocket activity fields
+    void recordConnectionActivity(List<ConnectionActivity> activities);
+}
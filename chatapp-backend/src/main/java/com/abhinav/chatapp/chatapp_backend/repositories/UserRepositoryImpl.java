@@ -0,0 +1,38 @@
+package com.abhinav.chatapp.chatapp_backend.repositories;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.utils.ConnectionActivity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void recordConnectionActivity(List<ConnectionActivity> activities) {
+        if (activities.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        for (ConnectionActivity activity : activities) {
+            Update update = new Update()
+                    .set("lastSeenAt", activity.lastSeenAt())
+                    .set("activeSessions", activity.activeSessions());
+            if (activity.connectedAt() != null) {
+                update.set("lastConnectedAt", activity.connectedAt());
+            }
+            bulk.updateOne(query(where("email").is(activity.email())), update);
+        }
+        bulk.execute();
+    }
+}
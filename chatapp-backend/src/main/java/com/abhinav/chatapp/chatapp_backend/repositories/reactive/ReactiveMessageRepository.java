@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.reactive;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveMessageRepository extends ReactiveMongoRepository<Message, String> {
+    //same queries as MessageRepository, served by the roomId + sequence index
+    Flux<Message> findByRoomIdOrderBySequenceDesc(String roomId, Pageable pageable);
+
+    Flux<Message> findByRoomIdAndSequenceLessThanOrderBySequenceDesc(String roomId, long sequence, Pageable pageable);
+
+    Flux<Message> findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(String roomId, long sequence, Pageable pageable);
+
+    //unbounded, for streaming a room's history oldest first
+    Flux<Message> findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(String roomId, long sequence);
+}
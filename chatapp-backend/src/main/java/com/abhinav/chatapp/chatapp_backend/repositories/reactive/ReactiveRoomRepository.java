@@ -0,0 +1,11 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.reactive;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveRoomRepository extends ReactiveMongoRepository<Room, String> {
+    Mono<Room> findByRoomId(String roomId);
+
+    Mono<Boolean> existsByRoomId(String roomId);
+}
@@ -0,0 +1,177 @@
+package com.abhinav.chatapp.chatapp_backend.security;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a verified token (by SHA-256 digest, never the raw token) to the user it
+ * belongs to, so authenticated requests skip signature verification and the user
+ * lookup while the entry is live. An entry never outlives its token's expiry or
+ * {@code app.security.principal-cache.max-ttl-seconds}, and AuthService drops a
+ * user's entries whenever it saves that user.
+ * <p>
+ * Entries are indexed by email, so dropping a user's entries does not scan the cache.
+ * Every drop also bumps the email's generation; a lookup that read the user before
+ * the drop sees the new generation and does not cache what it read.
+ */
+@Component
+public class AuthenticatedPrincipalCache {
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final ChatMetrics chatMetrics;
+    private final Cache<String, CachedPrincipal> cache;
+    //email -> digests of its cached tokens; only changed inside a compute on the email
+    private final Map<String, Set<String>> tokensByEmail = new ConcurrentHashMap<>();
+    //email -> times its entries were dropped; kept far longer than a lookup can take
+    private final Cache<String, Long> generations = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
+
+    public AuthenticatedPrincipalCache(JwtUtil jwtUtil,
+                                       UserRepository userRepository,
+                                       MeterRegistry meterRegistry,
+                                       ChatMetrics chatMetrics,
+                                       @Value("${app.security.principal-cache.max-size:50000}") long maxSize,
+                                       @Value("${app.security.principal-cache.max-ttl-seconds:600}") long maxTtlSeconds) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.chatMetrics = chatMetrics;
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+                        long untilTokenExpiry = value.expiresAtMillis() - System.currentTimeMillis();
+                        return Math.min(TimeUnit.MILLISECONDS.toNanos(Math.max(0, untilTokenExpiry)), maxTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedPrincipal value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, CachedPrincipal principal, RemovalCause cause) -> {
+                    if (key != null && principal != null) {
+                        unindex(principal.user().getEmail(), key);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    /**
+     * Returns the principal for a token, or empty when the token is valid but its
+     * user no longer exists. Throws the JWT exception when the token is invalid.
+     */
+    public Optional<CachedPrincipal> resolve(String token) {
+        String key = digest(token);
+        CachedPrincipal cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = jwtUtil.validateToken(token);
+        } catch (RuntimeException ex) {
+            chatMetrics.recordJwtValidation(System.nanoTime() - start, false);
+            throw ex;
+        }
+        chatMetrics.recordJwtValidation(System.nanoTime() - start, true);
+        Long generation = generations.getIfPresent(claims.getSubject());
+        Optional<User> userOpt = userRepository.findByEmail(claims.getSubject());
+        if (userOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        User user = userOpt.get();
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        CachedPrincipal principal = new CachedPrincipal(
+                user,
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())),
+                expiresAt
+        );
+        tokensByEmail.compute(claims.getSubject(), (email, keys) -> {
+            if (!Objects.equals(generations.getIfPresent(email), generation)) {
+                //the user changed while it was being read
+                return keys;
+            }
+            Set<String> indexed = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            indexed.add(key);
+            cache.put(key, principal);
+            return indexed;
+        });
+        return Optional.of(principal);
+    }
+
+    public void invalidateUser(String email) {
+        tokensByEmail.compute(email, (id, keys) -> {
+            generations.asMap().merge(id, 1L, Long::sum);
+            if (keys != null) {
+                cache.invalidateAll(keys);
+            }
+            return null;
+        });
+    }
+
+    //runs on the listener executor; a key cached again in the meantime stays indexed
+    private void unindex(String email, String key) {
+        tokensByEmail.computeIfPresent(email, (id, keys) -> {
+            if (!cache.asMap().containsKey(key)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    public record CachedPrincipal(User user, List<GrantedAuthority> authorities, long expiresAtMillis) {
+
+        public UsernamePasswordAuthenticationToken toAuthentication() {
+            return new UsernamePasswordAuthenticationToken(user, null, authorities);
+        }
+    }
+}
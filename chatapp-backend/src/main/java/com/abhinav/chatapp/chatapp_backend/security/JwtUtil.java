@@ -2,6 +2,7 @@ package com.abhinav.chatapp.chatapp_backend.security;
 
 import com.abhinav.chatapp.chatapp_backend.entities.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -18,10 +19,15 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     public String secretString;
     private SecretKey secretKey;
+    //parsers are immutable and thread-safe, build it once
+    private JwtParser jwtParser;
 
     @PostConstruct
     public void init(){
         this.secretKey = Keys.hmacShaKeyFor(secretString.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
     }
 
     public String generateTokenWithExpiry(User user) {
@@ -46,9 +52,7 @@ public class JwtUtil {
     }
 
     public Claims validateToken(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -0,0 +1,8 @@
+package com.abhinav.chatapp.chatapp_backend.security;
+
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,136 @@
+package com.abhinav.chatapp.chatapp_backend.security;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flood control for chat sends, first in clientInboundChannel so a rejected frame
+ * costs no handler thread or database work. Every SEND to {@code /app/sendMessage/{roomId}}
+ * takes a token from the sender's bucket and from the room's bucket; when either is empty
+ * the frame is rejected. The client gets an ERROR frame whose message starts with
+ * {@link #REJECTED_MESSAGE}, after which Spring closes the session, so clients have to
+ * back off before reconnecting.
+ * <p>
+ * The sender's rate and burst follow their role in the target room, read from
+ * RoomMetadataCache without loading it: a room not cached yet counts as MEMBER. A user
+ * has one bucket for all rooms, charged at the rate of the room each send goes to.
+ * <p>
+ * Buckets are GCRA cells: one theoretical arrival time per key, advanced with a CAS,
+ * so no locks. They are kept in bounded caches and dropped once idle for the longest
+ * refill time, which is when a bucket is full again anyway.
+ */
+@Component
+public class SendRateLimitInterceptor implements ChannelInterceptor {
+
+    public static final String REJECTED_MESSAGE = "Rate limit exceeded";
+    private static final String SEND_PREFIX = "/app/sendMessage/";
+
+    private final ChatMetrics chatMetrics;
+    private final RoomMetadataCache roomMetadataCache;
+    private final boolean enabled;
+    private final Map<Role, Limit> userLimits = new EnumMap<>(Role.class);
+    private final Limit roomLimit;
+    private final Cache<String, AtomicLong> userBuckets;
+    private final Cache<String, AtomicLong> roomBuckets;
+
+    public SendRateLimitInterceptor(ChatMetrics chatMetrics,
+                                    RoomMetadataCache roomMetadataCache,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                                    @Value("${app.rate-limit.member.per-second:5}") double memberRate,
+                                    @Value("${app.rate-limit.member.burst:10}") int memberBurst,
+                                    @Value("${app.rate-limit.admin.per-second:20}") double adminRate,
+                                    @Value("${app.rate-limit.admin.burst:40}") int adminBurst,
+                                    @Value("${app.rate-limit.room.per-second:100}") double roomRate,
+                                    @Value("${app.rate-limit.room.burst:200}") int roomBurst,
+                                    @Value("${app.rate-limit.max-keys:100000}") long maxKeys) {
+        this.chatMetrics = chatMetrics;
+        this.roomMetadataCache = roomMetadataCache;
+        this.enabled = enabled;
+        userLimits.put(Role.MEMBER, Limit.of(memberRate, memberBurst));
+        userLimits.put(Role.ADMIN, Limit.of(adminRate, adminBurst));
+        userLimits.put(Role.SUPER_ADMIN, Limit.of(adminRate, adminBurst));
+        this.roomLimit = Limit.of(roomRate, roomBurst);
+
+        long idleNanos = Math.max(roomLimit.refillNanos(),
+                userLimits.values().stream().mapToLong(Limit::refillNanos).max().orElse(0));
+        Duration idle = Duration.ofNanos(Math.max(idleNanos, TimeUnit.SECONDS.toNanos(1)));
+        this.userBuckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(idle).recordStats().build();
+        this.roomBuckets = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(idle).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userBuckets, "rate_limit_users");
+        CaffeineCacheMetrics.monitor(meterRegistry, roomBuckets, "rate_limit_rooms");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(SEND_PREFIX)) {
+            return message;
+        }
+
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(message.getHeaders());
+        User user = attributes != null && attributes.get("user") instanceof User found ? found : null;
+        String userKey = user != null ? user.getId() : SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String roomId = destination.substring(SEND_PREFIX.length());
+        Role role = roomMetadataCache.getIfPresent(roomId)
+                .map(room -> room.participants().get(userKey))
+                .orElse(Role.MEMBER);
+
+        long now = System.nanoTime();
+        if (userKey != null && !take(userBuckets, userKey, userLimits.get(role), now)) {
+            chatMetrics.sendThrottled("user", role);
+            throw new MessageDeliveryException(message, REJECTED_MESSAGE + ": slow down");
+        }
+        if (!take(roomBuckets, roomId, roomLimit, now)) {
+            chatMetrics.sendThrottled("room", role);
+            throw new MessageDeliveryException(message, REJECTED_MESSAGE + ": room " + roomId + " is too busy");
+        }
+        return message;
+    }
+
+    static boolean take(Cache<String, AtomicLong> buckets, String key, Limit limit, long now) {
+        //a new key starts with a full bucket
+        AtomicLong arrival = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + limit.intervalNanos();
+            if (next - now > limit.refillNanos()) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    //nanos per token, and the time an empty bucket takes to fill up again
+    record Limit(long intervalNanos, long refillNanos) {
+        static Limit of(double perSecond, int burst) {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            return new Limit(intervalNanos, intervalNanos * Math.max(1, burst));
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.abhinav.chatapp.chatapp_backend.security;
 
 import com.abhinav.chatapp.chatapp_backend.entities.User;
-import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.security.AuthenticatedPrincipalCache.CachedPrincipal;
 import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,7 +13,6 @@ import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
@@ -21,7 +20,6 @@ import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -30,8 +28,8 @@ import java.util.Optional;
 @Slf4j
 public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
 
-    private final JwtUtil jwtUtil;
-    private final UserRepository userRepository;
+    private final AuthenticatedPrincipalCache principalCache;
+    private final ChatMetrics chatMetrics;
 
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
@@ -46,22 +44,22 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
                 }
             }
 
-            if (token != null) {
+            if (token == null) {
+                chatMetrics.handshakeFailed("missing_token");
+            } else {
                 try {
-                    Claims claims = jwtUtil.validateToken(token);
-                    String email = claims.getSubject();
-                    attributes.put("email", email);
-                    Optional<User> optionalUser = userRepository.findByEmail(email);
-                    if (optionalUser.isPresent()) {
-                        User user = optionalUser.get();
-                        UsernamePasswordAuthenticationToken authentication =
-                                new UsernamePasswordAuthenticationToken(user, null, List.of());
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    Optional<CachedPrincipal> principal = principalCache.resolve(token);
+                    if (principal.isPresent()) {
+                        User user = principal.get().user();
+                        attributes.put("email", user.getEmail());
+                        SecurityContextHolder.getContext().setAuthentication(principal.get().toAuthentication());
                         attributes.put("user", user);
                         return true;
                     }
+                    chatMetrics.handshakeFailed("unknown_user");
                 } catch (Exception ex) {
-                    ex.printStackTrace();
+                    chatMetrics.handshakeFailed("invalid_token");
+                    log.debug("Rejected websocket handshake: {}", ex.getMessage());
                 }
             }
         }
@@ -74,9 +72,8 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
     public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
                                WebSocketHandler wsHandler, Exception exception) {
         if (exception != null) {
-            System.out.println("Handshake failed: " + exception.getMessage());
-        } else {
-            System.out.println("Handshake completed successfully for " + request.getRemoteAddress());
+            chatMetrics.handshakeFailed("error");
+            log.warn("Handshake failed for {}: {}", request.getRemoteAddress(), exception.getMessage());
         }
         SecurityContextHolder.clearContext();
     }
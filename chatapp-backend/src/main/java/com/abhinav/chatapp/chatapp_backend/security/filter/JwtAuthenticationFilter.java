@@ -1,32 +1,26 @@
 package com.abhinav.chatapp.chatapp_backend.security.filter;
 
-import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
-import com.abhinav.chatapp.chatapp_backend.entities.User;
-import com.abhinav.chatapp.chatapp_backend.security.JwtUtil;
-import io.jsonwebtoken.Claims;
+import com.abhinav.chatapp.chatapp_backend.security.AuthenticatedPrincipalCache;
+import com.abhinav.chatapp.chatapp_backend.security.AuthenticatedPrincipalCache.CachedPrincipal;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Optional;
 
 @Component
+@Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
-    private JwtUtil jwtUtil;
-
-    @Autowired
-    private UserRepository userRepository;
+    private AuthenticatedPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -38,26 +32,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                Claims claims = jwtUtil.validateToken(token);
-                String email = claims.getSubject();
-
-                Optional<User> userOpt = userRepository.findByEmail(email);
-                if (userOpt.isPresent()) {
-                    User user = userOpt.get();
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    user,
-                                    null,
-                                    List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
-                            );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                Optional<CachedPrincipal> principal = principalCache.resolve(token);
+                if (principal.isPresent()) {
+                    SecurityContextHolder.getContext().setAuthentication(principal.get().toAuthentication());
                 }
             } catch (Exception e) {
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
                 return;
             }
         } else {
-            System.out.println("No valid Authorization header found. Request will be rejected.");
+            log.debug("No bearer token on {} {}", request.getMethod(), request.getRequestURI());
         }
 
         filterChain.doFilter(request, response);
@@ -4,16 +4,12 @@ import com.abhinav.chatapp.chatapp_backend.entities.User;
 import com.abhinav.chatapp.chatapp_backend.enums.Role;
 import com.abhinav.chatapp.chatapp_backend.playload.*;
 import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.abhinav.chatapp.chatapp_backend.security.AuthenticatedPrincipalCache;
 import com.abhinav.chatapp.chatapp_backend.security.JwtUtil;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.abhinav.chatapp.chatapp_backend.security.PasswordHashingService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -24,10 +20,13 @@ import java.util.Random;
 @Service
 @RequiredArgsConstructor
 public class AuthService {
+    private static final Duration OTP_VALIDITY = Duration.ofMinutes(10);
+
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
-    @Autowired
-    private JavaMailSender mailSender;
+    private final AuthenticatedPrincipalCache principalCache;
+    private final PasswordHashingService passwordHashingService;
+    private final EmailOutboxService emailOutboxService;
 
     public ResponseEntity<?> signup(SignupRequest request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
@@ -38,13 +37,13 @@ public class AuthService {
                 .name(request.getName())
                 .email(request.getEmail())
                 .isActive(true)
-                .password(new BCryptPasswordEncoder().encode(request.getPassword()))
+                .password(passwordHashingService.encode(request.getPassword()))
                 .role(request.getRole() != null ? request.getRole() : Role.MEMBER)
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        userRepository.save(user);
+        saveUser(user);
         return ResponseEntity.ok("User registered successfully");
     }
 
@@ -57,11 +56,11 @@ public class AuthService {
         User user = optionalUser.get();
         user.setName(request.getName());
         if (request.getPassword() != null && !request.getPassword().isEmpty()) {
-            user.setPassword(new BCryptPasswordEncoder().encode(request.getPassword()));
+            user.setPassword(passwordHashingService.encode(request.getPassword()));
         }
         user.setUpdatedAt(LocalDateTime.now());
 
-        userRepository.save(user);
+        saveUser(user);
         return ResponseEntity.ok("User updated successfully");
     }
 
@@ -75,7 +74,7 @@ public class AuthService {
         user.setActive(request.getIsActive());
         user.setUpdatedAt(LocalDateTime.now());
 
-        userRepository.save(user);
+        saveUser(user);
         String statusMsg = request.getIsActive() ? "activated" : "deactivated";
         return ResponseEntity.ok("User " + statusMsg + " successfully");
     }
@@ -91,7 +90,7 @@ public class AuthService {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("User is deactivated");
         }
 
-        boolean passwordMatch = new BCryptPasswordEncoder().matches(request.getPassword(), user.getPassword());
+        boolean passwordMatch = passwordHashingService.matches(request.getPassword(), user.getPassword());
         if (!passwordMatch) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
         }
@@ -115,10 +114,10 @@ public class AuthService {
         }
 
         User user = optionalUser.get();
-        user.setPassword(new BCryptPasswordEncoder().encode(request.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(request.getNewPassword()));
         user.setUpdatedAt(LocalDateTime.now());
 
-        userRepository.save(user);
+        saveUser(user);
         return ResponseEntity.ok("Password reset successfully");
     }
 
@@ -132,21 +131,17 @@ public class AuthService {
         String otp = String.valueOf(new Random().nextInt(900000) + 100000);
         user.setEmailOtp(otp);
         user.setOtpGeneratedAt(LocalDateTime.now());
-        userRepository.save(user);
+        saveUser(user);
 
-        try {
-            String subject = "Your OTP Code";
-            String body = "<p>Hello <b>" + user.getName() + "</b>,</p>" +
-                    "<p>Your OTP is: <b>" + otp + "</b></p>" +
-                    "<p>This OTP is valid for 10 minutes.</p>" +
-                    "<br><p>Regards,<br>ChatApp Team</p>";
-
-            this.sendEmail(user.getEmail(), subject, body);
-            return ResponseEntity.ok("OTP sent successfully to email");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Failed to send OTP email: " + e.getMessage());
-        }
+        String subject = "Your OTP Code";
+        String body = "<p>Hello <b>" + user.getName() + "</b>,</p>" +
+                "<p>Your OTP is: <b>" + otp + "</b></p>" +
+                "<p>This OTP is valid for 10 minutes.</p>" +
+                "<br><p>Regards,<br>ChatApp Team</p>";
+
+        //delivered by the outbox dispatcher, an OTP mail is pointless once the OTP has expired
+        emailOutboxService.enqueue(user.getEmail(), subject, body, OTP_VALIDITY);
+        return ResponseEntity.ok("OTP sent successfully to email");
     }
 
     public ResponseEntity<?> verifyOtp(VerifyOtpRequest request) {
@@ -161,7 +156,7 @@ public class AuthService {
         }
 
         Duration diff = Duration.between(user.getOtpGeneratedAt(), LocalDateTime.now());
-        if (diff.toMinutes() > 10) {
+        if (diff.toMinutes() > OTP_VALIDITY.toMinutes()) {
             return ResponseEntity.status(HttpStatus.GONE).body("OTP expired");
         }
 
@@ -170,18 +165,13 @@ public class AuthService {
         user.setOtpGeneratedAt(null);
         user.setUpdatedAt(LocalDateTime.now());
 
-        userRepository.save(user);
+        saveUser(user);
         return ResponseEntity.ok("Email verified successfully");
     }
 
-    public void sendEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true);
-
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
-
-        mailSender.send(message);
+    //every change to a user has to reach the principals cached for their tokens
+    private void saveUser(User user) {
+        userRepository.save(user);
+        principalCache.invalidateUser(user.getEmail());
     }
 }
@@ -1,36 +1,126 @@
 package com.abhinav.chatapp.chatapp_backend.services;
 
 import com.abhinav.chatapp.chatapp_backend.entities.Message;
-import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.persistence.MessagePersistencePipeline;
+import com.abhinav.chatapp.chatapp_backend.persistence.MessageSequenceAllocator;
 import com.abhinav.chatapp.chatapp_backend.playload.MessageRequest;
-import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.utils.MessageDedupCache;
+import com.abhinav.chatapp.chatapp_backend.utils.PartitionedRoomExecutor;
+import com.abhinav.chatapp.chatapp_backend.utils.RecentMessageBuffer;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class ChatService {
 
-    private final RoomRepository roomRepository;
+    private final RoomMetadataCache roomMetadataCache;
+    private final MessageSequenceAllocator sequenceAllocator;
+    private final MessagePersistencePipeline persistencePipeline;
+    private final PartitionedRoomExecutor roomExecutor;
+    private final ChatMetrics chatMetrics;
+    private final RecentMessageBuffer recentMessages;
+    private final MessageDedupCache messageDedupCache;
+    private final MessageRepository messageRepository;
 
-    public ChatService(RoomRepository roomRepository) {
-        this.roomRepository = roomRepository;
+    public ChatService(RoomMetadataCache roomMetadataCache,
+                       MessageSequenceAllocator sequenceAllocator,
+                       MessagePersistencePipeline persistencePipeline,
+                       PartitionedRoomExecutor roomExecutor,
+                       ChatMetrics chatMetrics,
+                       RecentMessageBuffer recentMessages,
+                       MessageDedupCache messageDedupCache,
+                       MessageRepository messageRepository) {
+        this.roomMetadataCache = roomMetadataCache;
+        this.sequenceAllocator = sequenceAllocator;
+        this.persistencePipeline = persistencePipeline;
+        this.roomExecutor = roomExecutor;
+        this.chatMetrics = chatMetrics;
+        this.recentMessages = recentMessages;
+        this.messageDedupCache = messageDedupCache;
+        this.messageRepository = messageRepository;
     }
 
-    public Message handleSendMessage(MessageRequest request) {
-        Room room = roomRepository.findByRoomId(request.getRoomId());
-        if (room == null) {
+    //userId is the authenticated sender, the key for client message ids
+    public SendResult handleSendMessage(MessageRequest request, String userId) {
+        return chatMetrics.timeSend(() -> send(request, userId));
+    }
+
+    private SendResult send(MessageRequest request, String userId) {
+        String roomId = request.getRoomId();
+        if (!roomMetadataCache.exists(roomId)) {
             throw new RuntimeException("Room not found!");
         }
+        String clientMessageId = request.getClientMessageId();
+        if (clientMessageId != null && (clientMessageId.isBlank()
+                || clientMessageId.length() > MessageDedupCache.MAX_CLIENT_MESSAGE_ID_LENGTH)) {
+            throw new RuntimeException("Invalid client message id");
+        }
 
         Message message = new Message();
+        message.setRoomId(roomId);
         message.setContent(request.getContent());
         message.setSender(request.getSender());
-        message.setTimeStamp(LocalDateTime.now());
+        message.setClientMessageId(clientMessageId);
+        message.setUserId(userId);
 
-        room.getMessages().add(message);
-        roomRepository.save(room);
+        //sequence and timestamp are assigned on the room lane so they follow the same order
+        AtomicReference<MessageDedupCache.Accepted> accepted = new AtomicReference<>();
+        AtomicBoolean retry = new AtomicBoolean();
+        CompletableFuture<Void> stored = roomExecutor.call(roomId, () -> {
+            //a retry of a message accepted within the dedup window waits for the original's write;
+            //one accepted before that, or by another node, is found in storage
+            if (clientMessageId != null) {
+                Optional<MessageDedupCache.Accepted> earlier = messageDedupCache.find(roomId, userId, clientMessageId)
+                        .or(() -> messageRepository.findByRoomIdAndUserIdAndClientMessageId(roomId, userId, clientMessageId)
+                                .map(messageDedupCache::stored));
+                if (earlier.isPresent()) {
+                    accepted.set(earlier.get());
+                    retry.set(true);
+                    return earlier.get().stored();
+                }
+            }
+            //lets clients spot a missed broadcast: every lower sequence was reserved before this
+            //one, on this node or another, whether or not the ring still knows about it
+            long sequence = sequenceAllocator.next(roomId);
+            message.setSequence(sequence);
+            message.setPreviousSequence(sequence > 1 ? sequence - 1 : null);
+            message.setTimeStamp(LocalDateTime.now());
+            CompletableFuture<Void> submitted = persistencePipeline.submit(message);
+            recentMessages.append(message);
+            if (clientMessageId != null) {
+                accepted.set(messageDedupCache.remember(userId, message, submitted));
+            }
+            return submitted;
+        });
+        if (!retry.get()) {
+            //a message that never got stored must not be served from the ring; everything
+            //after it is read from storage again
+            stored.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    recentMessages.invalidate(roomId);
+                }
+            });
+        }
+
+        //nothing is acknowledged before it is durable; on a timeout the dedup entry stays,
+        //so a retry waits for this same write instead of storing a copy
+        persistencePipeline.awaitDurability(stored);
+        if (accepted.get() == null) {
+            return new SendResult(message, false);
+        }
+        //whichever send of the message gets through first broadcasts it, even a retry after a timeout
+        return new SendResult(accepted.get().message(), !accepted.get().claimBroadcast());
+    }
 
-        return message;
+    //duplicate: an earlier send of the same message stored and broadcast it, there is nothing to broadcast
+    public record SendResult(Message message, boolean duplicate) {
     }
 }
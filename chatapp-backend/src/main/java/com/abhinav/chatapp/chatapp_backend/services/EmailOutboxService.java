@@ -0,0 +1,162 @@
+package com.abhinav.chatapp.chatapp_backend.services;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+import com.abhinav.chatapp.chatapp_backend.enums.OutboxStatus;
+import com.abhinav.chatapp.chatapp_backend.repositories.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable outbox for outgoing mail. Callers only store a record; a scheduled
+ * dispatcher claims due records, sends each batch over a single SMTP connection
+ * and retries failures with exponential backoff until they succeed, run out of
+ * attempts or pass their expiry.
+ */
+@Service
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-ms:2000}")
+    private long initialBackoffMs;
+
+    @Value("${app.mail.outbox.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${app.mail.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository, JavaMailSender mailSender) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+    }
+
+    public EmailOutboxMessage enqueue(String to, String subject, String htmlContent, Duration validFor) {
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutboxMessage message = EmailOutboxMessage.builder()
+                .recipient(to)
+                .subject(subject)
+                .htmlBody(htmlContent)
+                .status(OutboxStatus.PENDING)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .expiresAt(validFor != null ? now.plus(validFor) : null)
+                .build();
+        return outboxRepository.save(message);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        long expired = outboxRepository.expireStale(now);
+        if (expired > 0) {
+            log.info("Expired {} undelivered emails", expired);
+        }
+
+        List<EmailOutboxMessage> batch = outboxRepository.claimDue(batchSize, now, Duration.ofMillis(leaseMs));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<MimeMessage, EmailOutboxMessage> outgoing = new IdentityHashMap<>();
+        for (EmailOutboxMessage message : batch) {
+            try {
+                outgoing.put(toMimeMessage(message), message);
+            } catch (MessagingException ex) {
+                //a message that cannot be built will not get better on retry
+                markFailed(message, ex, true);
+            }
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(outgoing.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException ex) {
+            failures = ex.getFailedMessages();
+            //without per-message details nothing is known to have been sent
+            if (failures.isEmpty()) {
+                failures = allFailed(outgoing, ex);
+            }
+        } catch (MailException ex) {
+            failures = allFailed(outgoing, ex);
+        }
+
+        LocalDateTime sentAt = LocalDateTime.now();
+        for (Map.Entry<MimeMessage, EmailOutboxMessage> entry : outgoing.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                markSent(entry.getValue(), sentAt);
+            } else {
+                markFailed(entry.getValue(), failure, false);
+            }
+        }
+        outboxRepository.saveAll(batch);
+    }
+
+    private static Map<Object, Exception> allFailed(Map<MimeMessage, EmailOutboxMessage> outgoing, Exception failure) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        for (MimeMessage mimeMessage : outgoing.keySet()) {
+            failures.put(mimeMessage, failure);
+        }
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutboxMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
+
+        helper.setTo(message.getRecipient());
+        helper.setSubject(message.getSubject());
+        helper.setText(message.getHtmlBody(), true);
+        return mimeMessage;
+    }
+
+    private void markSent(EmailOutboxMessage message, LocalDateTime sentAt) {
+        message.setStatus(OutboxStatus.SENT);
+        message.setAttempts(message.getAttempts() + 1);
+        message.setSentAt(sentAt);
+        message.setLockedUntil(null);
+        message.setLastError(null);
+    }
+
+    private void markFailed(EmailOutboxMessage message, Exception failure, boolean permanent) {
+        int attempts = message.getAttempts() + 1;
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+        LocalDateTime nextAttempt = LocalDateTime.now().plus(Duration.ofMillis(backoff));
+
+        message.setAttempts(attempts);
+        message.setLastError(failure.getMessage());
+        message.setLockedUntil(null);
+        if (permanent || attempts >= maxAttempts) {
+            message.setStatus(OutboxStatus.FAILED);
+            log.warn("Giving up on email {} to {} after {} attempts", message.getId(), message.getRecipient(), attempts);
+        } else if (message.getExpiresAt() != null && nextAttempt.isAfter(message.getExpiresAt())) {
+            message.setStatus(OutboxStatus.EXPIRED);
+        } else {
+            message.setStatus(OutboxStatus.PENDING);
+            message.setNextAttemptAt(nextAttempt);
+        }
+    }
+}
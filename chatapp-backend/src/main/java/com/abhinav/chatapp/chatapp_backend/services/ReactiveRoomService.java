@@ -0,0 +1,149 @@
+package com.abhinav.chatapp.chatapp_backend.services;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipBulkRequest;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageHistoryResponse;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummaryPage;
+import com.abhinav.chatapp.chatapp_backend.repositories.reactive.ReactiveMessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.reactive.ReactiveRoomRepository;
+import com.abhinav.chatapp.chatapp_backend.utils.RecentMessageBuffer;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking counterpart of {@link RoomService} for the reactive profile.
+ * Reads go straight to the reactive driver. Membership changes still go through
+ * RoomService so they keep the per-room lane ordering and cache updates; they run
+ * on the bounded-elastic scheduler so no request thread waits on them.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveRoomService {
+    private static final int MAX_HISTORY_LIMIT = 100;
+
+    private final ReactiveRoomRepository roomRepository;
+    private final ReactiveMessageRepository messageRepository;
+    private final RoomMetadataCache roomMetadataCache;
+    private final RoomService roomService;
+    private final RecentMessageBuffer recentMessages;
+
+    public Mono<Room> createRoom(String roomId, String userId) {
+        return blocking(() -> roomService.createRoom(roomId, userId));
+    }
+
+    public Flux<Room> getRooms() {
+        return roomRepository.findAll();
+    }
+
+    //one index lookup and one aggregation, not worth a second reactive implementation
+    public Mono<ResponseEntity<RoomSummaryPage>> getRoomSummaries(String userId, int page, int size) {
+        return blocking(() -> roomService.getRoomSummaries(userId, page, size));
+    }
+
+    public Mono<MembershipDelta> addUserToRoom(String roomId, String userId) {
+        return blocking(() -> roomService.addUserToRoom(roomId, userId));
+    }
+
+    public Mono<MembershipDelta> removeUserFromRoom(String roomId, String userId) {
+        return blocking(() -> roomService.removeUserFromRoom(roomId, userId));
+    }
+
+    public Mono<MembershipDelta> promoteUser(String roomId, String userId) {
+        return blocking(() -> roomService.promoteUser(roomId, userId));
+    }
+
+    public Mono<MembershipDelta> demoteUser(String roomId, String userId) {
+        return blocking(() -> roomService.demoteUser(roomId, userId));
+    }
+
+    public Mono<MembershipDelta> updateMembers(String roomId, List<MembershipBulkRequest.Operation> operations) {
+        return blocking(() -> roomService.updateMembers(roomId, operations));
+    }
+
+    public Mono<Boolean> exists(String roomId) {
+        if (roomMetadataCache.getIfPresent(roomId).isPresent()) {
+            return Mono.just(true);
+        }
+        return roomRepository.findByRoomId(roomId)
+                .doOnNext(roomMetadataCache::put)
+                .hasElement();
+    }
+
+    public Mono<List<Message>> getPaginatedMessages(String roomId, int page, int size) {
+        //pages are counted back from the newest message, each page is returned oldest first
+        Mono<List<Message>> rows = page == 0 ? newest(roomId, size)
+                : messageRepository.findByRoomIdOrderBySequenceDesc(roomId, PageRequest.of(page, size)).collectList();
+        return rows.map(messages -> {
+            List<Message> ordered = new ArrayList<>(messages);
+            Collections.reverse(ordered);
+            return ordered;
+        });
+    }
+
+    public Mono<MessageHistoryResponse> getMessageHistory(String roomId, Long before, Long after, int limit) {
+        int pageSize = Math.min(limit, MAX_HISTORY_LIMIT);
+        //fetch one extra row to know whether another page exists
+        PageRequest slice = PageRequest.of(0, pageSize + 1);
+
+        Mono<List<Message>> rows;
+        if (after != null) {
+            rows = Mono.justOrEmpty(recentMessages.after(roomId, after, pageSize + 1)).switchIfEmpty(
+                    messageRepository.findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(roomId, after, slice).collectList());
+        } else if (before != null) {
+            rows = messageRepository.findByRoomIdAndSequenceLessThanOrderBySequenceDesc(roomId, before, slice).collectList();
+        } else {
+            rows = newest(roomId, pageSize + 1);
+        }
+
+        return rows.map(found -> {
+            List<Message> messages = new ArrayList<>(found);
+            boolean hasMore = messages.size() > pageSize;
+            if (hasMore) {
+                messages.remove(messages.size() - 1);
+            }
+            if (after == null) {
+                Collections.reverse(messages);
+            }
+
+            Long nextCursor = null;
+            if (hasMore) {
+                nextCursor = after != null
+                        ? messages.get(messages.size() - 1).getSequence()
+                        : messages.get(0).getSequence();
+            }
+            return new MessageHistoryResponse(messages, nextCursor, hasMore);
+        });
+    }
+
+    //whole history after a sequence, oldest first, emitted as Mongo returns it
+    public Flux<Message> streamHistory(String roomId, long after) {
+        return messageRepository.findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(roomId, after);
+    }
+
+    //newest first, see RoomService
+    private Mono<List<Message>> newest(String roomId, int limit) {
+        return Mono.justOrEmpty(recentMessages.newest(roomId, limit)).switchIfEmpty(
+                messageRepository.findByRoomIdOrderBySequenceDesc(roomId, PageRequest.of(0, limit))
+                        .collectList()
+                        .doOnNext(stored -> recentMessages.seed(roomId, stored, stored.size() < limit)));
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
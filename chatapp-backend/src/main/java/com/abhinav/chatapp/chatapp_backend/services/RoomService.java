@@ -3,70 +3,302 @@ package com.abhinav.chatapp.chatapp_backend.services;
 import com.abhinav.chatapp.chatapp_backend.entities.Message;
 import com.abhinav.chatapp.chatapp_backend.entities.Room;
 import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipBulkRequest;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipChange;
+import com.abhinav.chatapp.chatapp_backend.playload.MembershipDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageHistoryResponse;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSnapshot;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummary;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummaryPage;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomMembershipRepository;
 import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
 import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.abhinav.chatapp.chatapp_backend.utils.PartitionedRoomExecutor;
+import com.abhinav.chatapp.chatapp_backend.utils.RecentMessageBuffer;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class RoomService {
+    private static final int MAX_HISTORY_LIMIT = 100;
+    private static final int MAX_SUMMARY_PAGE_SIZE = 100;
+    private static final int MAX_BULK_MEMBERSHIP_CHANGES = 500;
+
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
+    private final MessageRepository messageRepository;
+    private final PartitionedRoomExecutor roomExecutor;
+    private final RoomMetadataCache roomMetadataCache;
+    private final RoomMembershipRepository roomMembershipRepository;
+    private final ChatMetrics chatMetrics;
+    private final RecentMessageBuffer recentMessages;
 
     public Room createRoom(String roomId, String userId) {
-        Room room = new Room();
-        room.setRoomId(roomId);
-        room.getParticipants().put(userId, Role.SUPER_ADMIN);
-        return roomRepository.save(room);
+        return roomExecutor.call(roomId, () -> {
+            Room room = new Room();
+            room.setRoomId(roomId);
+            room.getParticipants().put(userId, Role.SUPER_ADMIN);
+            Room saved = cache(roomRepository.save(room));
+            roomMembershipRepository.upsert(roomId, userId, Role.SUPER_ADMIN);
+            return saved;
+        });
     }
 
     public List<Room> getRooms(){
         return roomRepository.findAll();
     }
 
-    public Room addUserToRoom(String roomId, String userId) {
-        Room room = roomRepository.findByRoomId(roomId);
+    public ResponseEntity<RoomSummaryPage> getRoomSummaries(String userId, int page, int size) {
+        if (page < 0 || size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        room.getParticipants().put(userId, Role.MEMBER);
-        return roomRepository.save(room);
+        int pageSize = Math.min(size, MAX_SUMMARY_PAGE_SIZE);
+        List<String> roomIds = null;
+        if (userId != null) {
+            roomIds = roomMembershipRepository.findByUserId(userId).stream()
+                    .map(RoomMembership::getRoomId)
+                    .toList();
+            if (roomIds.isEmpty()) {
+                return ResponseEntity.ok(new RoomSummaryPage(List.of(), page, pageSize, false));
+            }
+        }
+
+        //fetch one extra row to know whether another page exists
+        List<RoomSummary> rooms = new ArrayList<>(
+                roomRepository.findSummaries(roomIds, (long) page * pageSize, pageSize + 1));
+        boolean hasMore = rooms.size() > pageSize;
+        if (hasMore) {
+            rooms.remove(rooms.size() - 1);
+        }
+        return ResponseEntity.ok(new RoomSummaryPage(rooms, page, pageSize, hasMore));
     }
 
-    public Room removeUserFromRoom(String roomId, String userId) {
-        Room room = roomRepository.findByRoomId(roomId);
+    public MembershipDelta addUserToRoom(String roomId, String userId) {
+        return updateMembers(roomId, Collections.singletonMap(userId, Role.MEMBER));
+    }
 
-        room.getParticipants().remove(userId);
-        return roomRepository.save(room);
+    public MembershipDelta removeUserFromRoom(String roomId, String userId) {
+        return updateMembers(roomId, Collections.singletonMap(userId, null));
     }
 
-    public Room promoteUser(String roomId, String userId) {
-        Room room = roomRepository.findByRoomId(roomId);
+    public MembershipDelta promoteUser(String roomId, String userId) {
+        return updateMembers(roomId, Collections.singletonMap(userId, Role.ADMIN));
+    }
+
+    public MembershipDelta demoteUser(String roomId, String userId) {
+        return updateMembers(roomId, Collections.singletonMap(userId, Role.MEMBER));
+    }
 
-        room.getParticipants().put(userId, Role.ADMIN);
-        return roomRepository.save(room);
+    public MembershipDelta updateMembers(String roomId, List<MembershipBulkRequest.Operation> operations) {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BULK_MEMBERSHIP_CHANGES) {
+            throw new RuntimeException("Between 1 and " + MAX_BULK_MEMBERSHIP_CHANGES + " membership changes are allowed per request");
+        }
+        Map<String, Role> roles = new LinkedHashMap<>();
+        for (MembershipBulkRequest.Operation operation : operations) {
+            if (roles.containsKey(operation.getUserId())) {
+                throw new RuntimeException("User " + operation.getUserId() + " appears more than once");
+            }
+            roles.put(operation.getUserId(), operation.getRole());
+        }
+        return updateMembers(roomId, roles);
     }
 
-    public Room demoteUser(String roomId, String userId) {
-        Room room = roomRepository.findByRoomId(roomId);
+    /**
+     * Applies all role changes (null removes the user) as one atomic update of the room's
+     * participants map. The membership index and cache are updated on the room's lane so
+     * they are written in the same order as the room document.
+     */
+    private MembershipDelta updateMembers(String roomId, Map<String, Role> roles) {
+        roles.keySet().forEach(this::validateUserId);
+        return roomExecutor.call(roomId, () -> {
+            Room room = roomRepository.updateParticipants(roomId, roles)
+                    .orElseThrow(() -> new RuntimeException("Room not found"));
+
+            List<MembershipChange> changes = new ArrayList<>();
+            List<RoomMembership> upserts = new ArrayList<>();
+            List<String> removals = new ArrayList<>();
+            roles.forEach((userId, role) -> {
+                Role previous = role == null
+                        ? room.getParticipants().remove(userId)
+                        : room.getParticipants().put(userId, role);
+                if (previous == role) {
+                    return;
+                }
+                changes.add(new MembershipChange(userId, previous, role));
+                if (role == null) {
+                    removals.add(userId);
+                } else {
+                    upserts.add(new RoomMembership(null, userId, roomId, role));
+                }
+            });
 
-        room.getParticipants().put(userId, Role.MEMBER);
-        return roomRepository.save(room);
+            //room now holds the participants after the update
+            cache(room);
+            roomMembershipRepository.upsertAll(upserts);
+            roomMembershipRepository.removeAll(roomId, removals);
+            return new MembershipDelta(roomId, changes);
+        });
+    }
+
+    //user ids become field names inside participants
+    private void validateUserId(String userId) {
+        if (userId == null || userId.isBlank() || userId.contains(".") || userId.startsWith("$")) {
+            throw new RuntimeException("Invalid user id: " + userId);
+        }
     }
 
     public ResponseEntity<List<Message>> getPaginatedMessages(String roomId, int page, int size) {
-        Room room = roomRepository.findByRoomId(roomId);
-        if (room == null) {
+        return chatMetrics.timeHistoryRead("messages", () -> readPage(roomId, page, size));
+    }
+
+    public ResponseEntity<MessageHistoryResponse> getMessageHistory(String roomId, Long before, Long after, int limit) {
+        return chatMetrics.timeHistoryRead("history", () -> readHistory(roomId, before, after, limit));
+    }
+
+    private ResponseEntity<List<Message>> readPage(String roomId, int page, int size) {
+        if (page < 0 || size <= 0 || !roomMetadataCache.exists(roomId)) {
             return ResponseEntity.badRequest().build();
         }
 
-        List<Message> messages = room.getMessages();
-        int start = Math.max(0, messages.size() - (page + 1) * size);
-        int end = Math.min(messages.size(), start + size);
-        List<Message> paginatedMessages = messages.subList(start, end);
+        //pages are counted back from the newest message, each page is returned oldest first
+        List<Message> paginatedMessages = new ArrayList<>(page == 0 ? newest(roomId, size) :
+                messageRepository.findByRoomIdOrderBySequenceDesc(roomId, PageRequest.of(page, size)));
+        Collections.reverse(paginatedMessages);
         return ResponseEntity.ok(paginatedMessages);
     }
 
+    private ResponseEntity<MessageHistoryResponse> readHistory(String roomId, Long before, Long after, int limit) {
+        if ((before != null && after != null) || limit <= 0 || !roomMetadataCache.exists(roomId)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int pageSize = Math.min(limit, MAX_HISTORY_LIMIT);
+        //fetch one extra row to know whether another page exists
+        PageRequest slice = PageRequest.of(0, pageSize + 1);
+
+        List<Message> messages;
+        if (after != null) {
+            messages = new ArrayList<>(recentMessages.after(roomId, after, pageSize + 1).orElseGet(() ->
+                    messageRepository.findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(roomId, after, slice)));
+        } else if (before != null) {
+            messages = new ArrayList<>(
+                    messageRepository.findByRoomIdAndSequenceLessThanOrderBySequenceDesc(roomId, before, slice));
+        } else {
+            messages = new ArrayList<>(newest(roomId, pageSize + 1));
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages.remove(messages.size() - 1);
+        }
+        if (after == null) {
+            Collections.reverse(messages);
+        }
+
+        Long nextCursor = null;
+        if (hasMore) {
+            nextCursor = after != null
+                    ? messages.get(messages.size() - 1).getSequence()
+                    : messages.get(0).getSequence();
+        }
+        return ResponseEntity.ok(new MessageHistoryResponse(messages, nextCursor, hasMore));
+    }
+
+    /**
+     * The newest messages of a room and the sequence they run up to. Callers take it
+     * after their subscription is live, so every later message reaches them live and
+     * anything in between shows up in both, to be dropped by sequence.
+     */
+    public RoomSnapshot getRoomSnapshot(String roomId, int limit) {
+        if (limit <= 0 || !roomMetadataCache.exists(roomId)) {
+            throw new RuntimeException("Room not found!");
+        }
+        int size = Math.min(limit, MAX_HISTORY_LIMIT);
+
+        //on the lane the buffer holds every message sequenced so far, or cannot answer
+        Optional<List<Message>> buffered = roomExecutor.call(roomId, () -> recentMessages.newest(roomId, size + 1));
+        List<Message> messages;
+        if (buffered.isPresent()) {
+            messages = new ArrayList<>(buffered.get());
+        } else {
+            messages = new ArrayList<>(messageRepository.findByRoomIdOrderBySequenceDesc(roomId, PageRequest.of(0, size + 1)));
+            recentMessages.seed(roomId, messages, messages.size() <= size);
+            //messages sequenced but not yet written when storage was read
+            long stored = messages.isEmpty() ? 0 : messages.get(0).getSequence();
+            List<Message> pending = new ArrayList<>(roomExecutor.call(roomId,
+                    () -> recentMessages.after(roomId, stored, size + 1)).orElse(List.of()));
+            Collections.reverse(pending);
+            messages.addAll(0, pending);
+        }
+
+        boolean hasMore = messages.size() > size;
+        if (hasMore) {
+            messages.subList(size, messages.size()).clear();
+        }
+        Collections.reverse(messages);
+        long watermark = messages.isEmpty() ? 0 : messages.get(messages.size() - 1).getSequence();
+        return new RoomSnapshot(roomId, messages, watermark, hasMore, false);
+    }
+
+    /**
+     * Everything after a client's last seen sequence, for resuming a subscription. Empty
+     * when more than {@code maxMessages} were missed, the client should then take a
+     * fresh snapshot instead.
+     */
+    public Optional<RoomSnapshot> getRoomReplay(String roomId, long lastSequence, int maxMessages) {
+        if (maxMessages <= 0 || !roomMetadataCache.exists(roomId)) {
+            return Optional.empty();
+        }
+
+        Optional<List<Message>> buffered = roomExecutor.call(roomId,
+                () -> recentMessages.after(roomId, lastSequence, maxMessages + 1));
+        List<Message> missed;
+        if (buffered.isPresent()) {
+            missed = new ArrayList<>(buffered.get());
+        } else {
+            missed = new ArrayList<>(messageRepository.findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(
+                    roomId, lastSequence, PageRequest.of(0, maxMessages + 1)));
+            if (missed.size() <= maxMessages) {
+                long stored = missed.isEmpty() ? lastSequence : missed.get(missed.size() - 1).getSequence();
+                roomExecutor.call(roomId, () -> recentMessages.after(roomId, stored, maxMessages + 1))
+                        .ifPresent(missed::addAll);
+            }
+        }
+
+        if (missed.size() > maxMessages) {
+            return Optional.empty();
+        }
+        long watermark = missed.isEmpty() ? lastSequence : missed.get(missed.size() - 1).getSequence();
+        return Optional.of(new RoomSnapshot(roomId, missed, watermark, false, true));
+    }
+
+    //newest first; from the recent message buffer when it holds enough, else from storage, which warms the buffer
+    private List<Message> newest(String roomId, int limit) {
+        return recentMessages.newest(roomId, limit).orElseGet(() -> {
+            List<Message> stored = messageRepository.findByRoomIdOrderBySequenceDesc(roomId, PageRequest.of(0, limit));
+            recentMessages.seed(roomId, stored, stored.size() < limit);
+            return stored;
+        });
+    }
+
+    private Room cache(Room room) {
+        roomMetadataCache.put(room);
+        return room;
+    }
+
 }
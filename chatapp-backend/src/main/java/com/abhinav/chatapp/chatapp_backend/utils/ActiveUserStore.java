@@ -1,35 +1,315 @@
 package com.abhinav.chatapp.chatapp_backend.utils;
 
-import lombok.Getter;
+import com.abhinav.chatapp.chatapp_backend.playload.NodePresence;
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Presence registry keyed by STOMP session. A user stays online while any of their
+ * sessions is open, and is present in a room while any of their sessions is
+ * subscribed to {@code /topic/room/{roomId}}.
+ * <p>
+ * Each room keeps its own member counts, version and pending changes under its
+ * own monitor, so rooms never contend with each other. Changes are coalesced over
+ * {@code app.presence.broadcast-window-ms} and published as versioned deltas on
+ * {@code /topic/room/{roomId}/presence}; clients subscribe to
+ * {@code /app/room/{roomId}/presence} for a snapshot.
+ * <p>
+ * Everything one session does runs inside a compute on its sessions entry, so a
+ * subscribe cannot slip in after the disconnect that would have undone it. A room
+ * that empties out is dropped, but its version is kept in a bounded cache and picked
+ * up again when someone rejoins, so clients holding that version can keep applying deltas.
+ * <p>
+ * In a cluster this node only counts its own sessions, and its deltas carry its node id.
+ * ClusterPresenceReplicator hooks in through {@link #joinCluster}: it ships the deltas to
+ * the other nodes and supplies their share of a room, which snapshots list per node.
+ */
 @Component
-@Getter
 public class ActiveUserStore {
 
-    private final Set<String> activeUsers = ConcurrentHashMap.newKeySet();
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    public static final String LOCAL_NODE_ID = "local";
+
     private final SimpMessagingTemplate messagingTemplate;
 
-    public ActiveUserStore(SimpMessagingTemplate messagingTemplate) {
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> userSessionCounts = new ConcurrentHashMap<>();
+    private final Map<String, RoomPresence> rooms = new ConcurrentHashMap<>();
+    private final Set<String> dirtyRooms = ConcurrentHashMap.newKeySet();
+    //last version of rooms dropped while empty
+    private final Cache<String, Long> retiredVersions;
+
+    private volatile String nodeId = LOCAL_NODE_ID;
+    private volatile Consumer<PresenceDelta> deltaListener = delta -> { };
+    private volatile Function<String, List<NodePresence>> remotePresence = roomId -> List.of();
+
+    public ActiveUserStore(SimpMessagingTemplate messagingTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.presence.max-retired-rooms:100000}") long maxRetiredRooms) {
         this.messagingTemplate = messagingTemplate;
+        this.retiredVersions = Caffeine.newBuilder().maximumSize(maxRetiredRooms).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, retiredVersions, "presence_retired_rooms");
+        Gauge.builder("websocket.sessions", sessions, Map::size)
+                .description("Open STOMP sessions on this node")
+                .register(meterRegistry);
+        Gauge.builder("chat.users.active", userSessionCounts, Map::size)
+                .description("Users with at least one open session")
+                .register(meterRegistry);
+        Gauge.builder("chat.rooms.present", rooms, Map::size)
+                .description("Rooms with presence state on this node")
+                .register(meterRegistry);
+    }
+
+    public void sessionConnected(String sessionId, String email) {
+        sessions.compute(sessionId, (id, session) -> {
+            if (session != null) {
+                return session;
+            }
+            userSessionCounts.merge(email, 1, Integer::sum);
+            return new SessionPresence(email);
+        });
+    }
+
+    public void sessionDisconnected(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, session) -> {
+            for (String roomId : session.subscriptions().values()) {
+                leaveRoom(roomId, session.email());
+            }
+            userSessionCounts.computeIfPresent(session.email(), (email, count) -> count > 1 ? count - 1 : null);
+            return null;
+        });
+    }
+
+    public void subscribed(String sessionId, String subscriptionId, String destination) {
+        String roomId = roomIdOf(destination);
+        if (roomId == null || subscriptionId == null) {
+            return;
+        }
+        sessions.computeIfPresent(sessionId, (id, session) -> {
+            if (session.subscriptions().putIfAbsent(subscriptionId, roomId) == null) {
+                joinRoom(roomId, session.email());
+            }
+            return session;
+        });
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        if (subscriptionId == null) {
+            return;
+        }
+        sessions.computeIfPresent(sessionId, (id, session) -> {
+            String roomId = session.subscriptions().remove(subscriptionId);
+            if (roomId != null) {
+                leaveRoom(roomId, session.email());
+            }
+            return session;
+        });
     }
 
-    public void addUser(String email) {
-        activeUsers.add(email);
-        broadcast();
+    public Set<String> getActiveUsers() {
+        return userSessionCounts.keySet();
     }
 
-    public void removeUser(String email) {
-        activeUsers.remove(email);
-        broadcast();
+    public boolean isOnline(String email) {
+        return userSessionCounts.containsKey(email);
     }
 
-    private void broadcast() {
-        messagingTemplate.convertAndSend("/topic/active-users", activeUsers);
+    public int getSessionCount() {
+        return sessions.size();
     }
 
+    public int getSessionCount(String email) {
+        return userSessionCounts.getOrDefault(email, 0);
+    }
+
+    public Optional<String> emailOf(String sessionId) {
+        SessionPresence session = sessions.get(sessionId);
+        return session != null ? Optional.of(session.email()) : Optional.empty();
+    }
+
+    //called once at startup, before any session connects
+    public void joinCluster(String nodeId,
+                            Consumer<PresenceDelta> deltaListener,
+                            Function<String, List<NodePresence>> remotePresence) {
+        this.nodeId = nodeId;
+        this.deltaListener = deltaListener;
+        this.remotePresence = remotePresence;
+    }
+
+    public PresenceSnapshot roomSnapshot(String roomId) {
+        List<NodePresence> nodes = new ArrayList<>();
+        nodes.add(localPresence(roomId));
+        nodes.addAll(remotePresence.apply(roomId));
+        Set<String> users = new HashSet<>();
+        for (NodePresence node : nodes) {
+            users.addAll(node.getUsers());
+        }
+        return new PresenceSnapshot(roomId, users, nodes);
+    }
+
+    //this node's share of a room
+    public NodePresence localPresence(String roomId) {
+        RoomPresence room = rooms.get(roomId);
+        if (room != null) {
+            return room.presence(nodeId);
+        }
+        Long retired = retiredVersions.getIfPresent(roomId);
+        return new NodePresence(nodeId, retired != null ? retired : 0, Set.of());
+    }
+
+    //this node's share of every room it has members in, by roomId
+    public Map<String, NodePresence> localPresence() {
+        Map<String, NodePresence> presence = new HashMap<>();
+        rooms.forEach((roomId, room) -> presence.put(roomId, room.presence(nodeId)));
+        return presence;
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.broadcast-window-ms:250}")
+    public void broadcast() {
+        for (String roomId : dirtyRooms) {
+            dirtyRooms.remove(roomId);
+            RoomPresence room = rooms.get(roomId);
+            if (room == null) {
+                continue;
+            }
+            PresenceDelta delta = room.drain(nodeId);
+            if (delta != null) {
+                messagingTemplate.convertAndSend(ROOM_TOPIC_PREFIX + roomId + "/presence", delta);
+                deltaListener.accept(delta);
+            }
+            rooms.computeIfPresent(roomId, (id, presence) -> {
+                if (!presence.isIdle()) {
+                    return presence;
+                }
+                retiredVersions.put(id, presence.version());
+                return null;
+            });
+        }
+    }
+
+    //compute keeps join and the idle-room cleanup in broadcast() from interleaving
+    private void joinRoom(String roomId, String email) {
+        rooms.compute(roomId, (id, room) -> {
+            RoomPresence presence = room != null ? room : new RoomPresence(id, retiredVersion(id));
+            if (presence.join(email)) {
+                dirtyRooms.add(id);
+            }
+            return presence;
+        });
+    }
+
+    private void leaveRoom(String roomId, String email) {
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            if (room.leave(email)) {
+                dirtyRooms.add(id);
+            }
+            return room;
+        });
+    }
+
+    private long retiredVersion(String roomId) {
+        Long version = retiredVersions.asMap().remove(roomId);
+        return version != null ? version : 0;
+    }
+
+    private static String roomIdOf(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return null;
+        }
+        String roomId = destination.substring(ROOM_TOPIC_PREFIX.length());
+        return roomId.isEmpty() || roomId.contains("/") ? null : roomId;
+    }
+
+    //only touched inside a compute on the session's entry
+    private record SessionPresence(String email, Map<String, String> subscriptions) {
+        private SessionPresence(String email) {
+            this(email, new HashMap<>());
+        }
+    }
+
+    private static final class RoomPresence {
+        private final String roomId;
+        private final Map<String, Integer> members = new HashMap<>();
+        private final Set<String> pendingJoins = new HashSet<>();
+        private final Set<String> pendingLeaves = new HashSet<>();
+        private long version;
+
+        private RoomPresence(String roomId, long version) {
+            this.roomId = roomId;
+            this.version = version;
+        }
+
+        //true when the user was not present in the room before
+        synchronized boolean join(String email) {
+            if (members.merge(email, 1, Integer::sum) > 1) {
+                return false;
+            }
+            if (!pendingLeaves.remove(email)) {
+                pendingJoins.add(email);
+            }
+            return true;
+        }
+
+        //true when the user's last session left the room
+        synchronized boolean leave(String email) {
+            Integer count = members.get(email);
+            if (count == null) {
+                return false;
+            }
+            if (count > 1) {
+                members.put(email, count - 1);
+                return false;
+            }
+            members.remove(email);
+            if (!pendingJoins.remove(email)) {
+                pendingLeaves.add(email);
+            }
+            return true;
+        }
+
+        synchronized PresenceDelta drain(String nodeId) {
+            if (pendingJoins.isEmpty() && pendingLeaves.isEmpty()) {
+                return null;
+            }
+            PresenceDelta delta = new PresenceDelta(roomId, nodeId, version, version + 1,
+                    Set.copyOf(pendingJoins), Set.copyOf(pendingLeaves), false);
+            version++;
+            pendingJoins.clear();
+            pendingLeaves.clear();
+            return delta;
+        }
+
+        synchronized NodePresence presence(String nodeId) {
+            //pending changes are already applied to members; deltas are idempotent so replaying them is harmless
+            return new NodePresence(nodeId, version, Set.copyOf(members.keySet()));
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized boolean isIdle() {
+            return members.isEmpty() && pendingJoins.isEmpty() && pendingLeaves.isEmpty();
+        }
+    }
 }
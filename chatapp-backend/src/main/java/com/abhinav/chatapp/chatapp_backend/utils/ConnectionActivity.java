@@ -0,0 +1,12 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import java.time.LocalDateTime;
+
+//latest connection state of a user; connectedAt is null when only a disconnect happened since the last flush
+public record ConnectionActivity(String email, LocalDateTime connectedAt, LocalDateTime lastSeenAt, int activeSessions) {
+
+    ConnectionActivity mergeNewer(ConnectionActivity newer) {
+        LocalDateTime connected = newer.connectedAt() != null ? newer.connectedAt() : connectedAt;
+        return new ConnectionActivity(email, connected, newer.lastSeenAt(), newer.activeSessions());
+    }
+}
@@ -0,0 +1,74 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps connect/disconnect bookkeeping off the WebSocket event thread. Only the
+ * latest state per user is kept in memory and written back periodically as one
+ * bulk of field-level updates, so a reconnect storm costs one write per user
+ * per flush instead of two round trips per socket.
+ */
+@Component
+@Slf4j
+public class ConnectionActivityTracker {
+
+    private final UserRepository userRepository;
+    private final Map<String, ConnectionActivity> pending = new ConcurrentHashMap<>();
+
+    public ConnectionActivityTracker(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public void connected(String email, int activeSessions) {
+        LocalDateTime now = LocalDateTime.now();
+        track(new ConnectionActivity(email, now, now, activeSessions));
+    }
+
+    public void disconnected(String email, int activeSessions) {
+        track(new ConnectionActivity(email, null, LocalDateTime.now(), activeSessions));
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.activity-flush-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<ConnectionActivity> batch = new ArrayList<>(pending.size());
+        for (String email : pending.keySet()) {
+            ConnectionActivity activity = pending.remove(email);
+            if (activity != null) {
+                batch.add(activity);
+            }
+        }
+
+        try {
+            userRepository.recordConnectionActivity(batch);
+        } catch (RuntimeException ex) {
+            log.warn("Could not store connection activity of {} users, will retry: {}", batch.size(), ex.getMessage());
+            //anything recorded meanwhile is newer and wins
+            for (ConnectionActivity activity : batch) {
+                pending.merge(activity.email(), activity, (newer, older) -> older.mergeNewer(newer));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private void track(ConnectionActivity activity) {
+        pending.merge(activity.email(), activity, ConnectionActivity::mergeNewer);
+    }
+}
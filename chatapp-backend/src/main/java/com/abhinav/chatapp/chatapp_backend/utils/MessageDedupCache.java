@@ -0,0 +1,86 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recently accepted messages by (room, authenticated user, client message id), so a send
+ * retried after a timeout returns the stored message instead of creating a second one.
+ * The user is the session's, never the payload's sender, so one client cannot collide
+ * with another's ids. Each entry keeps the original's write, which a retry waits on
+ * before it is acknowledged.
+ * Entries live for {@code window-seconds} and the cache never holds more than
+ * {@code max-size} of them; a retry after that is treated as a new message. Lookups
+ * and inserts happen on the room's lane, which makes check-then-insert atomic per
+ * room. Hit rate is on /actuator/prometheus as cache_gets{cache="message_dedup"}.
+ * <p>
+ * The cache only knows this node's sends. ChatService falls back to the stored messages
+ * on a miss, and a unique index on (roomId, userId, clientMessageId) rejects a copy that
+ * two nodes accept at the same moment.
+ */
+@Component
+public class MessageDedupCache {
+
+    public static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+
+    private final Cache<Key, Accepted> accepted;
+
+    public MessageDedupCache(MeterRegistry meterRegistry,
+                             @Value("${app.messages.dedup.max-size:100000}") long maxSize,
+                             @Value("${app.messages.dedup.window-seconds:120}") long windowSeconds) {
+        this.accepted = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accepted, "message_dedup");
+    }
+
+    public Optional<Accepted> find(String roomId, String userId, String clientMessageId) {
+        return Optional.ofNullable(accepted.getIfPresent(new Key(roomId, userId, clientMessageId)));
+    }
+
+    //a message found in storage, accepted earlier or by another node; it has been broadcast already
+    public Accepted stored(Message message) {
+        return new Accepted(message, CompletableFuture.completedFuture(null), new AtomicBoolean(true));
+    }
+
+    //an entry whose write fails is dropped again, so a retry stores the message after all
+    public Accepted remember(String userId, Message message, CompletableFuture<Void> stored) {
+        Key key = keyOf(userId, message);
+        Accepted entry = new Accepted(message, stored, new AtomicBoolean());
+        accepted.put(key, entry);
+        stored.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                accepted.asMap().remove(key, entry);
+            }
+        });
+        return entry;
+    }
+
+    private static Key keyOf(String userId, Message message) {
+        return new Key(message.getRoomId(), userId, message.getClientMessageId());
+    }
+
+    //stored completes once the original is durable, or exceptionally when it never will be
+    public record Accepted(Message message, CompletableFuture<Void> stored, AtomicBoolean broadcast) {
+
+        //true for the one send that gets to broadcast the message
+        public boolean claimBroadcast() {
+            return broadcast.compareAndSet(false, true);
+        }
+    }
+
+    private record Key(String roomId, String userId, String clientMessageId) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs per-room work on a fixed set of single-threaded lanes chosen by hashing the
+ * roomId. Everything for one room executes in submission order on one thread, so
+ * room state can be changed without locks, while different rooms spread over
+ * all lanes.
+ * <p>
+ * Tasks must not block on another room's lane; a task that calls back into its own
+ * lane runs inline.
+ */
+@Component
+@Slf4j
+public class PartitionedRoomExecutor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.rooms.lanes:0}")
+    private int laneCount;
+
+    @Value("${app.rooms.lane-queue-capacity:10000}")
+    private int laneQueueCapacity;
+
+    private ThreadPoolExecutor[] lanes;
+    private Thread[] laneThreads;
+
+    public PartitionedRoomExecutor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        lanes = new ThreadPoolExecutor[count];
+        laneThreads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            int lane = i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(laneQueueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "room-lane-" + lane);
+                        thread.setDaemon(true);
+                        laneThreads[lane] = thread;
+                        return thread;
+                    });
+            Gauge.builder("chat.room.lane.queue.depth", lanes[i], executor -> executor.getQueue().size())
+                    .description("Tasks waiting on a room lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        log.info("Started {} room lanes", count);
+    }
+
+    public <T> CompletableFuture<T> submit(String roomId, Supplier<T> task) {
+        int lane = laneOf(roomId);
+        if (Thread.currentThread() == laneThreads[lane]) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, lanes[lane]);
+        } catch (RejectedExecutionException ex) {
+            throw new RuntimeException("Room is busy, try again later", ex);
+        }
+    }
+
+    //runs the task on the room's lane and waits for its result
+    public <T> T call(String roomId, Supplier<T> task) {
+        try {
+            return submit(roomId, task).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for room " + roomId, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    public int getQueueDepth(String roomId) {
+        return lanes[laneOf(roomId)].getQueue().size();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private int laneOf(String roomId) {
+        int hash = roomId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+}
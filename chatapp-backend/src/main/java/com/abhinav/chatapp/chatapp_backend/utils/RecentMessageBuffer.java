@@ -0,0 +1,262 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.persistence.MessageSequenceAllocator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * The last {@code capacity} messages of recently active rooms, so opening a room reads
+ * memory instead of the messages collection. Sends append on the room's lane, which
+ * keeps every ring in sequence order and gap free from its oldest entry on. A ring
+ * answers a read only when it holds everything the read asks for; otherwise the
+ * caller goes to storage and may {@link #seed} the ring with what it found.
+ * <p>
+ * Rings are evicted when idle and whenever the estimated size of all rings passes
+ * {@code max-bytes}. Only this node's sends reach the rings, so the buffer is off
+ * when the cluster mode is not {@code none}.
+ */
+@Component
+@Slf4j
+public class RecentMessageBuffer {
+
+    private final PartitionedRoomExecutor roomExecutor;
+    private final MessageSequenceAllocator sequenceAllocator;
+    private final int capacity;
+    private final Cache<String, RoomRing> rings;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageBuffer(PartitionedRoomExecutor roomExecutor,
+                               MessageSequenceAllocator sequenceAllocator,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.rooms.recent.capacity:100}") int capacity,
+                               @Value("${app.rooms.recent.max-bytes:67108864}") long maxBytes,
+                               @Value("${app.rooms.recent.idle-seconds:900}") long idleSeconds,
+                               @Value("${app.cluster.mode:none}") String clusterMode) {
+        this.roomExecutor = roomExecutor;
+        this.sequenceAllocator = sequenceAllocator;
+        this.capacity = "none".equals(clusterMode) ? Math.max(0, capacity) : 0;
+        this.rings = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String roomId, RoomRing ring) -> ring.weight())
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, rings, "recent_messages");
+        this.hits = Counter.builder("chat.history.recent.reads")
+                .description("History reads answered by the recent message buffer")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.history.recent.reads")
+                .description("History reads answered by the recent message buffer")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        if (this.capacity == 0 && capacity > 0) {
+            log.info("Recent message buffer is off in cluster mode {}", clusterMode);
+        }
+    }
+
+    //must run on the message's room lane, right after its sequence is assigned
+    public void append(Message message) {
+        if (capacity == 0) {
+            return;
+        }
+        rings.asMap().compute(message.getRoomId(), (roomId, ring) -> {
+            RoomRing target = ring != null ? ring : new RoomRing(capacity);
+            target.append(message);
+            return target;
+        });
+    }
+
+    //sequence of the newest buffered message, null when the room has no ring
+    public Long lastSequence(String roomId) {
+        RoomRing ring = capacity == 0 || roomId == null ? null : rings.getIfPresent(roomId);
+        return ring == null ? null : ring.newestSequence();
+    }
+
+    //up to limit messages, newest first, or empty when storage has to answer
+    public Optional<List<Message>> newest(String roomId, int limit) {
+        RoomRing ring = capacity == 0 || roomId == null ? null : rings.getIfPresent(roomId);
+        Optional<List<Message>> found = ring == null ? Optional.empty() : ring.newest(limit);
+        (found.isPresent() ? hits : misses).increment();
+        return found;
+    }
+
+    //up to limit messages after a sequence, oldest first, or empty when storage has to answer
+    public Optional<List<Message>> after(String roomId, long sequence, int limit) {
+        RoomRing ring = capacity == 0 || roomId == null ? null : rings.getIfPresent(roomId);
+        Optional<List<Message>> found = ring == null ? Optional.empty() : ring.after(sequence, limit);
+        (found.isPresent() ? hits : misses).increment();
+        return found;
+    }
+
+    /**
+     * Offers the newest rows read from storage (newest first) to the room's ring.
+     * {@code reachedStart} says the rows are the room's whole history. The rows are
+     * only taken when they provably join up with what the ring and the lane already
+     * know, so messages still in the write-behind queue never leave a hole.
+     */
+    public void seed(String roomId, List<Message> newestFirst, boolean reachedStart) {
+        if (capacity == 0 || roomId == null) {
+            return;
+        }
+        List<Message> rows = List.copyOf(newestFirst);
+        try {
+            roomExecutor.submit(roomId, () -> {
+                rings.asMap().compute(roomId, (id, ring) -> seeded(id, ring, rows, reachedStart));
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            //a busy lane only means the next read goes to storage again
+            log.debug("Skipped seeding recent messages of {}: {}", roomId, ex.getMessage());
+        }
+    }
+
+    //safe off the lane: a ring rebuilt by the next append starts at that message and is gap free
+    public void invalidate(String roomId) {
+        rings.invalidate(roomId);
+    }
+
+    private RoomRing seeded(String roomId, RoomRing ring, List<Message> rows, boolean reachedStart) {
+        if (ring == null) {
+            //every sequence this node handed out must already be in storage
+            OptionalLong issued = sequenceAllocator.lastIssued(roomId);
+            long newestStored = rows.isEmpty() ? 0 : rows.get(0).getSequence();
+            if (issued.isPresent() && issued.getAsLong() != newestStored) {
+                return null;
+            }
+            RoomRing created = new RoomRing(capacity);
+            created.prepend(rows, reachedStart);
+            return created;
+        }
+        //storage has caught up with the ring's oldest message, so everything older is stored too
+        OptionalLong oldest = ring.oldestSequence();
+        if (oldest.isPresent() && rows.stream().anyMatch(row -> row.getSequence() == oldest.getAsLong())) {
+            ring.prepend(rows, reachedStart);
+        }
+        return ring;
+    }
+
+    private static final class RoomRing {
+        //references, header and array overhead per ring
+        private static final int FIXED_WEIGHT = 128;
+
+        private final Message[] slots;
+        private int head;
+        private int size;
+        //holds the room's whole history
+        private boolean complete;
+        private long bytes;
+
+        private RoomRing(int capacity) {
+            this.slots = new Message[capacity];
+        }
+
+        private synchronized void append(Message message) {
+            if (size == slots.length) {
+                bytes -= estimate(slots[head]);
+                complete = false;
+            } else {
+                size++;
+            }
+            slots[head] = message;
+            bytes += estimate(message);
+            head = (head + 1) % slots.length;
+        }
+
+        //i = 0 is the newest
+        private Message get(int i) {
+            return slots[Math.floorMod(head - 1 - i, slots.length)];
+        }
+
+        private synchronized Optional<List<Message>> newest(int limit) {
+            if (size < limit && !complete) {
+                return Optional.empty();
+            }
+            List<Message> messages = new ArrayList<>(Math.min(limit, size));
+            for (int i = 0; i < size && i < limit; i++) {
+                messages.add(get(i));
+            }
+            return Optional.of(messages);
+        }
+
+        private synchronized Optional<List<Message>> after(long sequence, int limit) {
+            if (!complete && (size == 0 || sequence < get(size - 1).getSequence())) {
+                return Optional.empty();
+            }
+            List<Message> messages = new ArrayList<>();
+            for (int i = size - 1; i >= 0 && messages.size() < limit; i--) {
+                Message message = get(i);
+                if (message.getSequence() > sequence) {
+                    messages.add(message);
+                }
+            }
+            return Optional.of(messages);
+        }
+
+        private synchronized Long newestSequence() {
+            return size == 0 ? null : get(0).getSequence();
+        }
+
+        private synchronized OptionalLong oldestSequence() {
+            return size == 0 ? OptionalLong.empty() : OptionalLong.of(get(size - 1).getSequence());
+        }
+
+        //adds rows older than the oldest held message, keeping the newest capacity of them all
+        private synchronized void prepend(List<Message> newestFirst, boolean reachedStart) {
+            long oldest = size == 0 ? Long.MAX_VALUE : get(size - 1).getSequence();
+            List<Message> merged = new ArrayList<>(slots.length);
+            for (int i = 0; i < size; i++) {
+                merged.add(get(i));
+            }
+            for (Message row : newestFirst) {
+                if (merged.size() == slots.length) {
+                    reachedStart = false;
+                    break;
+                }
+                if (row.getSequence() < oldest) {
+                    merged.add(row);
+                }
+            }
+            Collections.reverse(merged);
+
+            Arrays.fill(slots, null);
+            size = 0;
+            head = 0;
+            bytes = 0;
+            for (Message message : merged) {
+                append(message);
+            }
+            complete = reachedStart;
+        }
+
+        private synchronized int weight() {
+            return (int) Math.min(Integer.MAX_VALUE, FIXED_WEIGHT + 8L * slots.length + bytes);
+        }
+
+        private static long estimate(Message message) {
+            long chars = length(message.getContent()) + length(message.getSender())
+                    + length(message.getRoomId()) + length(message.getId());
+            return 96 + 2 * chars;
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
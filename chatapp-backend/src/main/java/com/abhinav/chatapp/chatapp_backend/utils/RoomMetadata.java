@@ -0,0 +1,18 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+
+import java.util.Map;
+
+//immutable view of a room without its history, safe to share between threads
+public record RoomMetadata(String id, String roomId, Map<String, Role> participants) {
+
+    public static RoomMetadata of(Room room) {
+        return new RoomMetadata(room.getId(), room.getRoomId(), Map.copyOf(room.getParticipants()));
+    }
+
+    public boolean isParticipant(String userId) {
+        return participants.containsKey(userId);
+    }
+}
@@ -0,0 +1,71 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded cache of room metadata in front of {@link RoomRepository#findByRoomId}.
+ * Writes made through RoomService replace the entry; changes made elsewhere
+ * (another node, a manual edit) are picked up once the entry expires.
+ * Unknown rooms are not cached.
+ */
+@Component
+public class RoomMetadataCache {
+
+    private final RoomRepository roomRepository;
+    private final Cache<String, RoomMetadata> cache;
+
+    public RoomMetadataCache(RoomRepository roomRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.rooms.cache.max-size:10000}") long maxSize,
+                             @Value("${app.rooms.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.roomRepository = roomRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "rooms");
+    }
+
+    public Optional<RoomMetadata> get(String roomId) {
+        if (roomId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(roomId, id -> {
+            Room room = roomRepository.findByRoomId(id);
+            return room != null ? RoomMetadata.of(room) : null;
+        }));
+    }
+
+    //lookup without loading, for callers that must not block on Mongo
+    public Optional<RoomMetadata> getIfPresent(String roomId) {
+        return roomId == null ? Optional.empty() : Optional.ofNullable(cache.getIfPresent(roomId));
+    }
+
+    public boolean exists(String roomId) {
+        return get(roomId).isPresent();
+    }
+
+    public void put(Room room) {
+        cache.put(room.getRoomId(), RoomMetadata.of(room));
+    }
+
+    public void invalidate(String roomId) {
+        cache.invalidate(roomId);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
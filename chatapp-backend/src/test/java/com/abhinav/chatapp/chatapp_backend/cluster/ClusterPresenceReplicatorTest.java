@@ -0,0 +1,181 @@
+package com.abhinav.chatapp.chatapp_backend.cluster;
+
+import com.abhinav.chatapp.chatapp_backend.playload.NodePresence;
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceDelta;
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceSnapshot;
+import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterPresenceReplicatorTest {
+
+    private static final String ROOM = "room-1";
+    private static final String ROOM_TOPIC = "/topic/room/" + ROOM;
+
+    private final String channel = "presence-" + UUID.randomUUID();
+    private final Node nodeA = new Node("node-a");
+    private final Node nodeB = new Node("node-b");
+
+    @AfterEach
+    void leave() {
+        nodeA.bus.leave();
+        nodeB.bus.leave();
+    }
+
+    @Test
+    void snapshotsListEveryNodesMembers() throws Exception {
+        nodeA.start();
+        nodeB.start();
+        nodeA.join("s1", "alice@x.com");
+        nodeB.join("s2", "bob@x.com");
+        nodeA.store.broadcast();
+        nodeB.store.broadcast();
+
+        PresenceSnapshot snapshot = awaitSnapshot(nodeA, users -> users.size() == 2);
+        assertThat(snapshot.getUsers()).containsExactlyInAnyOrder("alice@x.com", "bob@x.com");
+        assertThat(snapshot.getNodes()).extracting(NodePresence::getNodeId)
+                .containsExactlyInAnyOrder("node-a", "node-b");
+        assertThat(snapshot.getNodes()).allSatisfy(node -> assertThat(node.getVersion()).isEqualTo(1));
+    }
+
+    @Test
+    void aLateNodeSyncsExistingPresence() throws Exception {
+        nodeA.start();
+        nodeA.join("s1", "alice@x.com");
+        nodeA.store.broadcast();
+
+        nodeB.start();
+
+        PresenceSnapshot snapshot = awaitSnapshot(nodeB, users -> users.contains("alice@x.com"));
+        assertThat(snapshot.getNodes()).filteredOn(node -> node.getNodeId().equals("node-a"))
+                .singleElement().satisfies(node -> assertThat(node.getVersion()).isEqualTo(1));
+    }
+
+    @Test
+    void appliesChainedDeltasAndIgnoresReplays() {
+        ClusterPresenceReplicator replicator = nodeA.replicator;
+
+        assertThat(replicator.applyDelta("node-b", delta(0, 1, Set.of("bob@x.com"), Set.of()))).isTrue();
+        assertThat(replicator.applyDelta("node-b", delta(1, 2, Set.of("carol@x.com"), Set.of("bob@x.com")))).isTrue();
+        assertThat(replicator.applyDelta("node-b", delta(0, 1, Set.of("bob@x.com"), Set.of()))).isTrue();
+
+        assertThat(replicator.remotePresence(ROOM)).singleElement().satisfies(node -> {
+            assertThat(node.getVersion()).isEqualTo(2);
+            assertThat(node.getUsers()).containsExactly("carol@x.com");
+        });
+    }
+
+    @Test
+    void reportsAGapAndRepairsItFromState() {
+        ClusterPresenceReplicator replicator = nodeA.replicator;
+        replicator.applyDelta("node-b", delta(0, 1, Set.of("bob@x.com"), Set.of()));
+
+        assertThat(replicator.applyDelta("node-b", delta(2, 3, Set.of("carol@x.com"), Set.of()))).isFalse();
+        assertThat(replicator.remotePresence(ROOM).get(0).getVersion()).isEqualTo(1);
+
+        replicator.applyState("node-b", new ClusterPresenceReplicator.NodeState(false,
+                List.of(new ClusterPresenceReplicator.RoomState(ROOM, 3, Set.of("bob@x.com", "carol@x.com")))));
+        assertThat(replicator.applyDelta("node-b", delta(3, 4, Set.of(), Set.of("bob@x.com")))).isTrue();
+        assertThat(replicator.remotePresence(ROOM).get(0).getUsers()).containsExactly("carol@x.com");
+    }
+
+    @Test
+    void aCompleteStateForgetsRoomsTheNodeNoLongerReports() {
+        ClusterPresenceReplicator replicator = nodeA.replicator;
+        replicator.applyDelta("node-b", delta(0, 1, Set.of("bob@x.com"), Set.of()));
+
+        replicator.applyState("node-b", new ClusterPresenceReplicator.NodeState(true, List.of()));
+
+        assertThat(replicator.remotePresence(ROOM)).isEmpty();
+    }
+
+    @Test
+    void droppingANodeTellsClientsItsMembersLeft() {
+        ClusterPresenceReplicator replicator = nodeA.replicator;
+        replicator.applyDelta("node-b", delta(0, 1, Set.of("bob@x.com"), Set.of()));
+
+        replicator.dropNode("node-b");
+
+        ArgumentCaptor<PresenceDelta> published = ArgumentCaptor.forClass(PresenceDelta.class);
+        verify(nodeA.messagingTemplate).convertAndSend(eq(ROOM_TOPIC + "/presence"), published.capture());
+        assertThat(published.getValue().isNodeDown()).isTrue();
+        assertThat(published.getValue().getNodeId()).isEqualTo("node-b");
+        assertThat(published.getValue().getLeft()).containsExactly("bob@x.com");
+        assertThat(replicator.remotePresence(ROOM)).isEmpty();
+    }
+
+    @Test
+    void aNodeSayingGoodbyeIsDropped() throws Exception {
+        nodeA.start();
+        nodeB.start();
+        nodeB.join("s2", "bob@x.com");
+        nodeB.store.broadcast();
+        awaitSnapshot(nodeA, users -> users.contains("bob@x.com"));
+
+        nodeB.replicator.stop();
+
+        awaitSnapshot(nodeA, Set::isEmpty);
+        verify(nodeA.messagingTemplate, timeout(5000)).convertAndSend(eq(ROOM_TOPIC + "/presence"), any(PresenceDelta.class));
+    }
+
+    private static PresenceDelta delta(long fromVersion, long version, Set<String> joined, Set<String> left) {
+        return new PresenceDelta(ROOM, "node-b", fromVersion, version, joined, left, false);
+    }
+
+    private static PresenceSnapshot awaitSnapshot(Node node, Predicate<Set<String>> condition)
+            throws InterruptedException {
+        Supplier<PresenceSnapshot> snapshot = () -> node.store.roomSnapshot(ROOM);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.test(snapshot.get().getUsers())) {
+            assertThat(System.currentTimeMillis()).as("presence never converged").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        return snapshot.get();
+    }
+
+    private final class Node {
+        private final LoopbackClusterMessageBus bus;
+        private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        private final ActiveUserStore store;
+        private final ClusterPresenceReplicator replicator;
+
+        @SuppressWarnings("unchecked")
+        private Node(String nodeId) {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            bus = new LoopbackClusterMessageBus(nodeId, channel);
+            ObjectProvider<ClusterMessageBus> provider = mock(ObjectProvider.class);
+            when(provider.getIfAvailable()).thenReturn(bus);
+            store = new ActiveUserStore(messagingTemplate, meterRegistry, 1000);
+            replicator = new ClusterPresenceReplicator(provider, store, messagingTemplate,
+                    new ObjectMapper(), meterRegistry, 10_000);
+        }
+
+        private void start() {
+            replicator.start();
+        }
+
+        private void join(String sessionId, String email) {
+            store.sessionConnected(sessionId, email);
+            store.subscribed(sessionId, "sub-" + sessionId, ROOM_TOPIC);
+        }
+    }
+}
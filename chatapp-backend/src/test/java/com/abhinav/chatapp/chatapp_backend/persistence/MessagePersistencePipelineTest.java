@@ -0,0 +1,239 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.enums.DurabilityMode;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.SequenceConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class MessagePersistencePipelineTest {
+
+    private MessageRepository messageRepository;
+    private RoomRepository roomRepository;
+    private MeterRegistry meterRegistry;
+    private MessagePersistencePipeline pipeline;
+    private final List<Message> stored = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        roomRepository = mock(RoomRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        doAnswer(invocation -> stored.addAll(invocation.getArgument(0)))
+                .when(messageRepository).insertBatch(anyList());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void syncModeStoresOnTheCallerThread() {
+        start(DurabilityMode.SYNC);
+        Message message = message("room", 1);
+
+        CompletableFuture<Void> future = pipeline.submit(message);
+
+        assertThat(future).isCompleted();
+        verify(messageRepository).insert(message);
+        verify(messageRepository, never()).insertBatch(anyList());
+    }
+
+    @Test
+    void groupCommitCompletesOnceTheBatchIsStored() {
+        start(DurabilityMode.GROUP_COMMIT);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            futures.add(pipeline.submit(message("room", i)));
+        }
+
+        futures.forEach(pipeline::awaitDurability);
+
+        assertThat(stored).hasSize(20);
+        verify(roomRepository, timeout(1000).atLeastOnce()).recordLastMessages(anyCollection());
+    }
+
+    @Test
+    void groupCommitFailsTheSenderWhenTheBatchCannotBeStored() {
+        doThrow(new RuntimeException("down")).when(messageRepository).insertBatch(anyList());
+        start(DurabilityMode.GROUP_COMMIT);
+
+        CompletableFuture<Void> future = pipeline.submit(message("room", 1));
+
+        assertThatThrownBy(() -> pipeline.awaitDurability(future)).hasMessage("Message could not be stored");
+        assertThat(dropped("rejected")).isEqualTo(1.0);
+        assertThat(dropped("lost")).isZero();
+    }
+
+    @Test
+    void failsOnlyTheMessagesWhoseSequenceIsTaken() {
+        doAnswer(invocation -> {
+            List<Message> batch = invocation.getArgument(0);
+            List<Message> taken = batch.stream().filter(message -> message.getSequence() == 1).toList();
+            batch.stream().filter(message -> message.getSequence() != 1).forEach(stored::add);
+            if (!taken.isEmpty()) {
+                throw new SequenceConflictException(taken);
+            }
+            return null;
+        }).when(messageRepository).insertBatch(anyList());
+        start(DurabilityMode.GROUP_COMMIT);
+
+        CompletableFuture<Void> taken = pipeline.submit(message("room", 1));
+        CompletableFuture<Void> free = pipeline.submit(message("room", 2));
+
+        assertThatThrownBy(() -> pipeline.awaitDurability(taken)).hasMessage("Message could not be stored");
+        pipeline.awaitDurability(free);
+        assertThat(stored).extracting(Message::getSequence).containsExactly(2L);
+        assertThat(dropped("rejected")).isEqualTo(1.0);
+    }
+
+    @Test
+    void asyncModeNeverWaits() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return stored.addAll(invocation.getArgument(0));
+        }).when(messageRepository).insertBatch(anyList());
+        start(DurabilityMode.ASYNC);
+
+        CompletableFuture<Void> future = pipeline.submit(message("room", 1));
+        pipeline.awaitDurability(future);
+
+        assertThat(future).isNotDone();
+        release.countDown();
+        future.join();
+        assertThat(stored).hasSize(1);
+    }
+
+    @Test
+    void asyncModeRetriesAFailedBatchLater() {
+        doThrow(new RuntimeException("down"))
+                .doThrow(new RuntimeException("still down"))
+                .doAnswer(invocation -> stored.addAll(invocation.getArgument(0)))
+                .when(messageRepository).insertBatch(anyList());
+        start(DurabilityMode.ASYNC);
+
+        CompletableFuture<Void> future = pipeline.submit(message("room", 1));
+
+        future.orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(stored).extracting(Message::getSequence).containsExactly(1L);
+        assertThat(pipeline.getDeferredCount()).isZero();
+        assertThat(dropped("lost")).isZero();
+    }
+
+    @Test
+    void asyncModeCountsWhatIsStillUnstoredAtShutdownAsLost() throws InterruptedException {
+        doThrow(new RuntimeException("down")).when(messageRepository).insertBatch(anyList());
+        ReflectionTestUtils.setField(newPipeline(DurabilityMode.ASYNC), "deadLetterRetryMs", 60_000L);
+        pipeline.start();
+
+        CompletableFuture<Void> future = pipeline.submit(message("room", 1));
+        waitFor(() -> pipeline.getDeferredCount() == 1);
+        pipeline.stop();
+
+        assertThat(future).isCompletedExceptionally();
+        assertThat(dropped("lost")).isEqualTo(1.0);
+    }
+
+    @Test
+    void flushesQueuedMessagesOnShutdown() throws InterruptedException {
+        start(DurabilityMode.ASYNC);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            futures.add(pipeline.submit(message("room", i)));
+        }
+
+        pipeline.stop();
+
+        assertThat(futures).allMatch(CompletableFuture::isDone);
+        assertThat(stored).hasSize(50);
+        assertThatThrownBy(() -> pipeline.submit(message("room", 51))).hasMessage("Message store is shutting down");
+    }
+
+    @Test
+    void rejectsSendsWhileTheQueueIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return stored.addAll(invocation.getArgument(0));
+        }).when(messageRepository).insertBatch(anyList());
+        ReflectionTestUtils.setField(newPipeline(DurabilityMode.GROUP_COMMIT), "queueCapacity", 1);
+        pipeline.start();
+
+        //the writer holds the first message, the second fills the queue
+        pipeline.submit(message("room", 1));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        pipeline.submit(message("room", 2));
+
+        assertThatThrownBy(() -> pipeline.submit(message("room", 3))).hasMessage("Message queue is full, try again later");
+        release.countDown();
+    }
+
+    private void start(DurabilityMode mode) {
+        newPipeline(mode);
+        pipeline.start();
+    }
+
+    private MessagePersistencePipeline newPipeline(DurabilityMode mode) {
+        pipeline = new MessagePersistencePipeline(messageRepository, roomRepository, meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "mode", mode);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 100);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 10);
+        ReflectionTestUtils.setField(pipeline, "flushIntervalMs", 5L);
+        ReflectionTestUtils.setField(pipeline, "offerTimeoutMs", 10L);
+        ReflectionTestUtils.setField(pipeline, "commitTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(pipeline, "maxRetries", 0);
+        ReflectionTestUtils.setField(pipeline, "deadLetterCapacity", 100);
+        ReflectionTestUtils.setField(pipeline, "deadLetterRetryMs", 10L);
+        return pipeline;
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("chat.messages.dropped").tag("reason", reason).counter().count();
+    }
+
+    private static Message message(String roomId, long sequence) {
+        Message message = new Message("alice", "hello " + sequence);
+        message.setRoomId(roomId);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
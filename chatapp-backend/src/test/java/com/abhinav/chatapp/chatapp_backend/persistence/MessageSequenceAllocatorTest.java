@@ -0,0 +1,116 @@
+package com.abhinav.chatapp.chatapp_backend.persistence;
+
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageSequenceAllocatorTest {
+
+    private MessageRepository messageRepository;
+    private MessageSequenceAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        allocator = new MessageSequenceAllocator(messageRepository);
+        ReflectionTestUtils.setField(allocator, "blockSize", 3);
+    }
+
+    @Test
+    void reservesOneBlockPerBlockSizeSequences() {
+        when(messageRepository.reserveSequences("room", 3)).thenReturn(3L, 6L);
+
+        List<Long> issued = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            issued.add(allocator.next("room"));
+        }
+
+        assertThat(issued).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        verify(messageRepository, times(2)).reserveSequences("room", 3);
+    }
+
+    @Test
+    void startsAtTheReservedBlockAfterARestart() {
+        //another node or an earlier run already used sequences up to 100
+        when(messageRepository.reserveSequences("room", 3)).thenReturn(103L);
+
+        assertThat(allocator.next("room")).isEqualTo(101L);
+        assertThat(allocator.next("room")).isEqualTo(102L);
+    }
+
+    @Test
+    void keepsRoomsApart() {
+        when(messageRepository.reserveSequences(eq("a"), anyInt())).thenReturn(3L);
+        when(messageRepository.reserveSequences(eq("b"), anyInt())).thenReturn(3L);
+
+        assertThat(allocator.next("a")).isEqualTo(1L);
+        assertThat(allocator.next("a")).isEqualTo(2L);
+        assertThat(allocator.next("b")).isEqualTo(1L);
+    }
+
+    @Test
+    void reportsTheLastIssuedSequence() {
+        when(messageRepository.reserveSequences("room", 3)).thenReturn(3L);
+
+        assertThat(allocator.lastIssued("room")).isEmpty();
+        allocator.next("room");
+        allocator.next("room");
+
+        assertThat(allocator.lastIssued("room")).hasValue(2L);
+        assertThat(allocator.lastIssued("other")).isEmpty();
+    }
+
+    @Test
+    void neverIssuesASequenceTwiceUnderContention() throws Exception {
+        AtomicLong counter = new AtomicLong();
+        when(messageRepository.reserveSequences(eq("room"), anyInt()))
+                .thenAnswer(invocation -> counter.addAndGet(invocation.<Integer>getArgument(1)));
+
+        int threads = 8;
+        int perThread = 1000;
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        issued.add(allocator.next("room"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(issued).hasSize(threads * perThread);
+        assertThat(allocator.lastIssued("room")).hasValue((long) threads * perThread);
+    }
+}
@@ -0,0 +1,96 @@
+package com.abhinav.chatapp.chatapp_backend.security;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthenticatedPrincipalCacheTest {
+
+    private static final String ALICE = "alice@x.com";
+    private static final String BOB = "bob@x.com";
+
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuthenticatedPrincipalCache cache = new AuthenticatedPrincipalCache(
+            jwtUtil, userRepository, meterRegistry, new ChatMetrics(meterRegistry), 1000, 600);
+
+    @Test
+    void servesARepeatedTokenFromTheCache() {
+        token("alice-token", ALICE);
+        when(userRepository.findByEmail(ALICE)).thenReturn(Optional.of(user(ALICE, "Alice")));
+
+        cache.resolve("alice-token");
+        cache.resolve("alice-token");
+
+        verify(jwtUtil, times(1)).validateToken("alice-token");
+        verify(userRepository, times(1)).findByEmail(ALICE);
+    }
+
+    @Test
+    void invalidatingAUserDropsEveryTokenOfTheirsAndNoOtherUsers() {
+        token("alice-web", ALICE);
+        token("alice-phone", ALICE);
+        token("bob-token", BOB);
+        when(userRepository.findByEmail(ALICE)).thenReturn(Optional.of(user(ALICE, "Alice")));
+        when(userRepository.findByEmail(BOB)).thenReturn(Optional.of(user(BOB, "Bob")));
+        cache.resolve("alice-web");
+        cache.resolve("alice-phone");
+        cache.resolve("bob-token");
+
+        when(userRepository.findByEmail(ALICE)).thenReturn(Optional.of(user(ALICE, "Alice Renamed")));
+        cache.invalidateUser(ALICE);
+
+        assertThat(cache.resolve("alice-web")).get().extracting(principal -> principal.user().getName())
+                .isEqualTo("Alice Renamed");
+        assertThat(cache.resolve("alice-phone")).get().extracting(principal -> principal.user().getName())
+                .isEqualTo("Alice Renamed");
+        cache.resolve("bob-token");
+        verify(userRepository, times(4)).findByEmail(ALICE);
+        verify(userRepository, times(1)).findByEmail(BOB);
+    }
+
+    @Test
+    void aLookupRacingAnInvalidationDoesNotCacheWhatItRead() {
+        token("alice-token", ALICE);
+        //the user is saved and invalidated after the lookup read it
+        doAnswer(invocation -> {
+            cache.invalidateUser(ALICE);
+            return Optional.of(user(ALICE, "Alice"));
+        }).doReturn(Optional.of(user(ALICE, "Alice Renamed")))
+                .when(userRepository).findByEmail(ALICE);
+
+        assertThat(cache.resolve("alice-token")).get().extracting(principal -> principal.user().getName())
+                .isEqualTo("Alice");
+        assertThat(cache.resolve("alice-token")).get().extracting(principal -> principal.user().getName())
+                .isEqualTo("Alice Renamed");
+        assertThat(cache.resolve("alice-token")).get().extracting(principal -> principal.user().getName())
+                .isEqualTo("Alice Renamed");
+        verify(userRepository, times(2)).findByEmail(ALICE);
+    }
+
+    private void token(String token, String email) {
+        when(jwtUtil.validateToken(token)).thenReturn(Jwts.claims()
+                .subject(email)
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .build());
+    }
+
+    private static User user(String email, String name) {
+        return User.builder().email(email).name(name).role(Role.MEMBER).isActive(true).build();
+    }
+}
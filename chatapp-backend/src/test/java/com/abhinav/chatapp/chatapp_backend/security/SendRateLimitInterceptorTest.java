@@ -0,0 +1,129 @@
+package com.abhinav.chatapp.chatapp_backend.security;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadata;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SendRateLimitInterceptorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Cache<String, AtomicLong> buckets = Caffeine.newBuilder().build();
+
+    @Test
+    void allowsAFullBurstThenRejects() {
+        SendRateLimitInterceptor.Limit limit = SendRateLimitInterceptor.Limit.of(5, 10);
+        long now = 1_000 * SECOND;
+
+        long taken = IntStream.range(0, 20)
+                .filter(i -> SendRateLimitInterceptor.take(buckets, "user", limit, now))
+                .count();
+
+        assertThat(taken).isEqualTo(10);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        SendRateLimitInterceptor.Limit limit = SendRateLimitInterceptor.Limit.of(5, 10);
+        long now = 1_000 * SECOND;
+        IntStream.range(0, 10).forEach(i -> SendRateLimitInterceptor.take(buckets, "user", limit, now));
+        assertThat(SendRateLimitInterceptor.take(buckets, "user", limit, now)).isFalse();
+
+        assertThat(SendRateLimitInterceptor.take(buckets, "user", limit, now + limit.intervalNanos() - 1)).isFalse();
+        assertThat(SendRateLimitInterceptor.take(buckets, "user", limit, now + limit.intervalNanos())).isTrue();
+        assertThat(SendRateLimitInterceptor.take(buckets, "user", limit, now + limit.intervalNanos())).isFalse();
+    }
+
+    @Test
+    void anIdleBucketRefillsOnlyUpToItsBurst() {
+        SendRateLimitInterceptor.Limit limit = SendRateLimitInterceptor.Limit.of(5, 10);
+        long now = 1_000 * SECOND;
+        IntStream.range(0, 10).forEach(i -> SendRateLimitInterceptor.take(buckets, "user", limit, now));
+
+        long later = now + 60 * SECOND;
+        long taken = IntStream.range(0, 20)
+                .filter(i -> SendRateLimitInterceptor.take(buckets, "user", limit, later))
+                .count();
+
+        assertThat(taken).isEqualTo(10);
+    }
+
+    @Test
+    void keepsABucketPerKey() {
+        SendRateLimitInterceptor.Limit limit = SendRateLimitInterceptor.Limit.of(1, 1);
+        long now = 1_000 * SECOND;
+
+        assertThat(SendRateLimitInterceptor.take(buckets, "alice", limit, now)).isTrue();
+        assertThat(SendRateLimitInterceptor.take(buckets, "alice", limit, now)).isFalse();
+        assertThat(SendRateLimitInterceptor.take(buckets, "bob", limit, now)).isTrue();
+    }
+
+    @Test
+    void chargesTheSenderAtTheirRoleInTheRoom() {
+        ChatMetrics chatMetrics = mock(ChatMetrics.class);
+        RoomMetadataCache roomMetadataCache = mock(RoomMetadataCache.class);
+        when(roomMetadataCache.getIfPresent(anyString())).thenReturn(Optional.empty());
+        when(roomMetadataCache.getIfPresent("staff")).thenReturn(Optional.of(
+                new RoomMetadata("1", "staff", Map.of("alice", Role.ADMIN))));
+        //one token for members, three for admins; the room limit stays out of the way
+        SendRateLimitInterceptor interceptor = new SendRateLimitInterceptor(chatMetrics, roomMetadataCache,
+                new SimpleMeterRegistry(), true, 0.001, 1, 0.001, 3, 1000, 1000, 100);
+
+        IntStream.range(0, 3).forEach(i -> interceptor.preSend(send("alice", "staff"), null));
+        assertThatThrownBy(() -> interceptor.preSend(send("alice", "staff"), null))
+                .isInstanceOf(MessageDeliveryException.class)
+                .hasMessageStartingWith(SendRateLimitInterceptor.REJECTED_MESSAGE);
+        verify(chatMetrics).sendThrottled("user", Role.ADMIN);
+
+        interceptor.preSend(send("bob", "lobby"), null);
+        assertThatThrownBy(() -> interceptor.preSend(send("bob", "lobby"), null))
+                .isInstanceOf(MessageDeliveryException.class);
+        verify(chatMetrics).sendThrottled("user", Role.MEMBER);
+    }
+
+    @Test
+    void ignoresFramesThatAreNotSends() {
+        SendRateLimitInterceptor interceptor = new SendRateLimitInterceptor(mock(ChatMetrics.class),
+                mock(RoomMetadataCache.class), new SimpleMeterRegistry(), true, 0.001, 1, 0.001, 1, 0.001, 1, 100);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/app/typing/lobby");
+        Message<byte[]> typing = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        IntStream.range(0, 5).forEach(i -> assertThat(interceptor.preSend(typing, null)).isSameAs(typing));
+    }
+
+    private static Message<byte[]> send(String userId, String roomId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination("/app/sendMessage/" + roomId);
+        accessor.setSessionId("session-" + userId);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("user", User.builder().id(userId).build());
+        accessor.setSessionAttributes(attributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,161 @@
+package com.abhinav.chatapp.chatapp_backend.services;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+import com.abhinav.chatapp.chatapp_backend.enums.OutboxStatus;
+import com.abhinav.chatapp.chatapp_backend.repositories.EmailOutboxRepository;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxServiceTest {
+
+    private static final long INITIAL_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final EmailOutboxRepository outboxRepository = mock(EmailOutboxRepository.class);
+    private final JavaMailSender mailSender = mock(JavaMailSender.class);
+    private final EmailOutboxService service = new EmailOutboxService(outboxRepository, mailSender);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", INITIAL_BACKOFF_MS);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", MAX_BACKOFF_MS);
+        ReflectionTestUtils.setField(service, "leaseMs", 60_000L);
+        when(mailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage(Session.getInstance(new Properties())));
+    }
+
+    @Test
+    void marksDeliveredMailSent() {
+        EmailOutboxMessage message = due("a@x.com", 0, null);
+        claim(message);
+
+        service.dispatch();
+
+        assertThat(message.getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(message.getAttempts()).isEqualTo(1);
+        assertThat(message.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void backsOffExponentiallyUpToTheCap() {
+        assertThat(backoffAfterFailure(0)).isEqualTo(Duration.ofMillis(INITIAL_BACKOFF_MS));
+        assertThat(backoffAfterFailure(1)).isEqualTo(Duration.ofMillis(2 * INITIAL_BACKOFF_MS));
+        assertThat(backoffAfterFailure(2)).isEqualTo(Duration.ofMillis(4 * INITIAL_BACKOFF_MS));
+        assertThat(backoffAfterFailure(3)).isEqualTo(Duration.ofMillis(MAX_BACKOFF_MS));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        EmailOutboxMessage message = due("a@x.com", 4, null);
+        claim(message);
+        failAllSends();
+
+        service.dispatch();
+
+        assertThat(message.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(message.getAttempts()).isEqualTo(5);
+        assertThat(message.getLastError()).isEqualTo("smtp down");
+    }
+
+    @Test
+    void expiresMailThatCouldNotBeRetriedInTime() {
+        EmailOutboxMessage message = due("a@x.com", 0, LocalDateTime.now().plusSeconds(1));
+        claim(message);
+        failAllSends();
+
+        service.dispatch();
+
+        assertThat(message.getStatus()).isEqualTo(OutboxStatus.EXPIRED);
+        assertThat(message.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesOnlyTheMessagesThatFailed() {
+        EmailOutboxMessage good = due("good@x.com", 0, null);
+        EmailOutboxMessage bad = due("bad@x.com", 0, null);
+        claim(good, bad);
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            for (Object argument : invocation.getArguments()) {
+                MimeMessage mimeMessage = (MimeMessage) argument;
+                if (((InternetAddress) mimeMessage.getAllRecipients()[0]).getAddress().equals("bad@x.com")) {
+                    failed.put(mimeMessage, new RuntimeException("mailbox full"));
+                }
+            }
+            throw new MailSendException(failed);
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        service.dispatch();
+
+        assertThat(good.getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(bad.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(bad.getLastError()).isEqualTo("mailbox full");
+    }
+
+    @Test
+    void treatsASendFailureWithoutDetailsAsFailingEveryMessage() {
+        EmailOutboxMessage message = due("a@x.com", 0, null);
+        claim(message);
+        doThrow(new MailSendException("connection reset")).when(mailSender).send(any(MimeMessage[].class));
+
+        service.dispatch();
+
+        assertThat(message.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(message.getAttempts()).isEqualTo(1);
+    }
+
+    //time from the failed dispatch to the next attempt, rounded to whole seconds against clock drift in the test
+    private Duration backoffAfterFailure(int previousAttempts) {
+        EmailOutboxMessage message = due("a@x.com", previousAttempts, null);
+        claim(message);
+        failAllSends();
+
+        LocalDateTime before = LocalDateTime.now();
+        service.dispatch();
+
+        assertThat(message.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(message.getAttempts()).isEqualTo(previousAttempts + 1);
+        return Duration.ofSeconds(Duration.between(before, message.getNextAttemptAt()).toSeconds());
+    }
+
+    private void claim(EmailOutboxMessage... messages) {
+        when(outboxRepository.claimDue(anyInt(), any(), any())).thenReturn(List.of(messages));
+    }
+
+    private void failAllSends() {
+        doThrow(new MailSendException("smtp down")).when(mailSender).send(any(MimeMessage[].class));
+    }
+
+    private static EmailOutboxMessage due(String recipient, int attempts, LocalDateTime expiresAt) {
+        return EmailOutboxMessage.builder()
+                .recipient(recipient)
+                .subject("Your code")
+                .htmlBody("<p>123456</p>")
+                .status(OutboxStatus.SENDING)
+                .attempts(attempts)
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
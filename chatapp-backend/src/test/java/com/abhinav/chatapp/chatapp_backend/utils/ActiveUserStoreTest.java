@@ -0,0 +1,225 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceDelta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ActiveUserStoreTest {
+
+    private static final String ROOM = "room-1";
+    private static final String ROOM_TOPIC = "/topic/room/" + ROOM;
+    private static final String PRESENCE_TOPIC = ROOM_TOPIC + "/presence";
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ActiveUserStore store = new ActiveUserStore(messagingTemplate, new SimpleMeterRegistry(), 1000);
+
+    @Test
+    void publishesAJoinAsTheFirstVersion() {
+        join("s1", "alice@x.com");
+
+        store.broadcast();
+
+        PresenceDelta delta = published().get(0);
+        assertThat(delta.getFromVersion()).isZero();
+        assertThat(delta.getVersion()).isEqualTo(1);
+        assertThat(delta.getJoined()).containsExactly("alice@x.com");
+        assertThat(delta.getLeft()).isEmpty();
+        assertThat(store.localPresence(ROOM).getVersion()).isEqualTo(1);
+        assertThat(store.roomSnapshot(ROOM).getUsers()).containsExactly("alice@x.com");
+    }
+
+    @Test
+    void chainsVersionsAcrossDeltas() {
+        join("s1", "alice@x.com");
+        store.broadcast();
+        join("s2", "bob@x.com");
+        store.unsubscribed("s1", "sub-s1");
+        store.broadcast();
+
+        List<PresenceDelta> deltas = published();
+        assertThat(deltas).hasSize(2);
+        PresenceDelta second = deltas.get(1);
+        assertThat(second.getFromVersion()).isEqualTo(deltas.get(0).getVersion());
+        assertThat(second.getVersion()).isEqualTo(2);
+        assertThat(second.getJoined()).containsExactly("bob@x.com");
+        assertThat(second.getLeft()).containsExactly("alice@x.com");
+        assertThat(store.roomSnapshot(ROOM).getUsers()).containsExactly("bob@x.com");
+    }
+
+    @Test
+    void coalescesChangesWithinAWindow() {
+        join("s1", "alice@x.com");
+        store.broadcast();
+        clearInvocations(messagingTemplate);
+
+        //leaving and coming back before the next broadcast is no change at all
+        store.unsubscribed("s1", "sub-s1");
+        store.subscribed("s1", "sub-again", ROOM_TOPIC);
+        join("s2", "bob@x.com");
+        store.unsubscribed("s2", "sub-s2");
+        store.broadcast();
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertThat(store.localPresence(ROOM).getVersion()).isEqualTo(1);
+        assertThat(store.roomSnapshot(ROOM).getUsers()).containsExactly("alice@x.com");
+    }
+
+    @Test
+    void publishesNothingWithoutChanges() {
+        store.broadcast();
+        join("s1", "alice@x.com");
+        store.broadcast();
+        store.broadcast();
+
+        verify(messagingTemplate, times(1)).convertAndSend(eq(PRESENCE_TOPIC), any(PresenceDelta.class));
+    }
+
+    @Test
+    void dropsARoomOnceEveryoneHasLeft() {
+        join("s1", "alice@x.com");
+        store.broadcast();
+        store.sessionDisconnected("s1");
+        store.broadcast();
+
+        assertThat(published().get(1).getLeft()).containsExactly("alice@x.com");
+        assertThat(store.localPresence(ROOM).getVersion()).isEqualTo(2);
+        assertThat(store.roomSnapshot(ROOM).getUsers()).isEmpty();
+    }
+
+    @Test
+    void continuesTheVersionOfADroppedRoom() {
+        join("s1", "alice@x.com");
+        store.broadcast();
+        store.sessionDisconnected("s1");
+        store.broadcast();
+
+        join("s2", "bob@x.com");
+        store.broadcast();
+
+        PresenceDelta rejoin = published().get(2);
+        assertThat(rejoin.getFromVersion()).isEqualTo(2);
+        assertThat(rejoin.getVersion()).isEqualTo(3);
+        assertThat(rejoin.getJoined()).containsExactly("bob@x.com");
+    }
+
+    @Test
+    void keepsAUserOnlineUntilTheirLastSessionCloses() {
+        store.sessionConnected("s1", "alice@x.com");
+        store.sessionConnected("s2", "alice@x.com");
+        store.sessionConnected("s2", "alice@x.com");
+
+        assertThat(store.getSessionCount("alice@x.com")).isEqualTo(2);
+        assertThat(store.getActiveUsers()).containsExactly("alice@x.com");
+
+        store.sessionDisconnected("s1");
+        store.sessionDisconnected("s1");
+        assertThat(store.isOnline("alice@x.com")).isTrue();
+        assertThat(store.getSessionCount("alice@x.com")).isEqualTo(1);
+
+        store.sessionDisconnected("s2");
+        assertThat(store.isOnline("alice@x.com")).isFalse();
+        assertThat(store.getSessionCount()).isZero();
+    }
+
+    @Test
+    void keepsAUserInARoomWhileAnyOfTheirSessionsIsSubscribed() {
+        join("s1", "alice@x.com");
+        join("s2", "alice@x.com");
+        store.broadcast();
+        assertThat(published()).hasSize(1);
+
+        store.sessionDisconnected("s1");
+        store.broadcast();
+        assertThat(published()).hasSize(1);
+        assertThat(store.roomSnapshot(ROOM).getUsers()).containsExactly("alice@x.com");
+
+        store.unsubscribed("s2", "sub-s2");
+        store.broadcast();
+        assertThat(published().get(1).getLeft()).containsExactly("alice@x.com");
+    }
+
+    @Test
+    void countsARepeatedSubscriptionOnce() {
+        join("s1", "alice@x.com");
+        store.subscribed("s1", "sub-s1", ROOM_TOPIC);
+        store.unsubscribed("s1", "sub-s1");
+        store.broadcast();
+
+        assertThat(store.roomSnapshot(ROOM).getUsers()).isEmpty();
+    }
+
+    @Test
+    void ignoresDestinationsThatAreNotARoom() {
+        store.sessionConnected("s1", "alice@x.com");
+        store.subscribed("s1", "sub-1", "/topic/room/" + ROOM + "/presence");
+        store.subscribed("s1", "sub-2", "/user/queue/errors");
+        store.subscribed("unknown", "sub-3", ROOM_TOPIC);
+        store.broadcast();
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertThat(store.emailOf("s1")).contains("alice@x.com");
+        assertThat(store.emailOf("unknown")).isEmpty();
+    }
+
+    @Test
+    void aSubscribeRacingADisconnectLeavesNoPresenceBehind() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                String sessionId = "race-" + i;
+                store.sessionConnected(sessionId, "user" + i + "@x.com");
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> subscribe = executor.submit(() -> {
+                    start.await();
+                    store.subscribed(sessionId, "sub", ROOM_TOPIC);
+                    return null;
+                });
+                Future<?> disconnect = executor.submit(() -> {
+                    start.await();
+                    store.sessionDisconnected(sessionId);
+                    return null;
+                });
+                start.countDown();
+                subscribe.get();
+                disconnect.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        store.broadcast();
+
+        assertThat(store.roomSnapshot(ROOM).getUsers()).isEmpty();
+        assertThat(store.getSessionCount()).isZero();
+        assertThat(store.getActiveUsers()).isEmpty();
+    }
+
+    private void join(String sessionId, String email) {
+        store.sessionConnected(sessionId, email);
+        store.subscribed(sessionId, "sub-" + sessionId, ROOM_TOPIC);
+    }
+
+    private List<PresenceDelta> published() {
+        ArgumentCaptor<PresenceDelta> deltas = ArgumentCaptor.forClass(PresenceDelta.class);
+        verify(messagingTemplate, atLeastOnce()).convertAndSend(eq(PRESENCE_TOPIC), deltas.capture());
+        return deltas.getAllValues();
+    }
+}
@@ -0,0 +1,117 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageDedupCacheTest {
+
+    @Test
+    void findsARememberedSendByRoomUserAndClientId() {
+        MessageDedupCache cache = cache(100, 60);
+        Message message = message("room", "c-1");
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+
+        cache.remember("user-1", message, stored);
+
+        assertThat(cache.find("room", "user-1", "c-1")).hasValueSatisfying(accepted -> {
+            assertThat(accepted.message()).isSameAs(message);
+            assertThat(accepted.stored()).isSameAs(stored);
+        });
+        assertThat(cache.find("room", "user-2", "c-1")).isEmpty();
+        assertThat(cache.find("other", "user-1", "c-1")).isEmpty();
+        assertThat(cache.find("room", "user-1", "c-2")).isEmpty();
+    }
+
+    @Test
+    void letsOnlyOneSendBroadcast() {
+        MessageDedupCache cache = cache(100, 60);
+        MessageDedupCache.Accepted accepted = cache.remember("user-1", message("room", "c-1"), new CompletableFuture<>());
+
+        assertThat(accepted.claimBroadcast()).isTrue();
+        assertThat(cache.find("room", "user-1", "c-1").orElseThrow().claimBroadcast()).isFalse();
+    }
+
+    @Test
+    void aMessageFoundInStorageIsStoredAndNotBroadcastAgain() {
+        MessageDedupCache cache = cache(100, 60);
+        Message message = message("room", "c-1");
+
+        MessageDedupCache.Accepted accepted = cache.stored(message);
+
+        assertThat(accepted.message()).isSameAs(message);
+        assertThat(accepted.stored()).isCompleted();
+        assertThat(accepted.claimBroadcast()).isFalse();
+    }
+
+    @Test
+    void forgetsASendWhoseWriteFails() {
+        MessageDedupCache cache = cache(100, 60);
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        cache.remember("user-1", message("room", "c-1"), stored);
+
+        stored.completeExceptionally(new RuntimeException("down"));
+
+        assertThat(cache.find("room", "user-1", "c-1")).isEmpty();
+    }
+
+    @Test
+    void aFailedWriteDoesNotDropANewerEntry() {
+        MessageDedupCache cache = cache(100, 60);
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        cache.remember("user-1", message("room", "c-1"), first);
+        Message retry = message("room", "c-1");
+        cache.remember("user-1", retry, CompletableFuture.completedFuture(null));
+
+        first.completeExceptionally(new RuntimeException("down"));
+
+        assertThat(cache.find("room", "user-1", "c-1")).hasValueSatisfying(
+                accepted -> assertThat(accepted.message()).isSameAs(retry));
+    }
+
+    @Test
+    void forgetsSendsOnceTheWindowHasPassed() throws InterruptedException {
+        MessageDedupCache cache = cache(100, 1);
+        cache.remember("user-1", message("room", "c-1"), CompletableFuture.completedFuture(null));
+        assertThat(cache.find("room", "user-1", "c-1")).isPresent();
+
+        Thread.sleep(1_200);
+
+        assertThat(cache.find("room", "user-1", "c-1")).isEmpty();
+    }
+
+    @Test
+    void holdsNoMoreThanMaxSizeEntries() throws InterruptedException {
+        MessageDedupCache cache = cache(10, 60);
+        IntStream.range(0, 200).forEach(i ->
+                cache.remember("user-1", message("room", "c-" + i), CompletableFuture.completedFuture(null)));
+
+        //eviction runs in the background shortly after the writes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long kept;
+        do {
+            Thread.sleep(10);
+            kept = IntStream.range(0, 200)
+                    .filter(i -> cache.find("room", "user-1", "c-" + i).isPresent())
+                    .count();
+        } while (kept > 10 && System.nanoTime() < deadline);
+        assertThat(kept).isLessThanOrEqualTo(10);
+    }
+
+    private static MessageDedupCache cache(long maxSize, long windowSeconds) {
+        return new MessageDedupCache(new SimpleMeterRegistry(), maxSize, windowSeconds);
+    }
+
+    private static Message message(String roomId, String clientMessageId) {
+        Message message = new Message("alice", "hello");
+        message.setRoomId(roomId);
+        message.setClientMessageId(clientMessageId);
+        return message;
+    }
+}
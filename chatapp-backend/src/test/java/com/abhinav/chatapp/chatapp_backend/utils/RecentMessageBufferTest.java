@@ -0,0 +1,208 @@
+package com.abhinav.chatapp.chatapp_backend.utils;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.persistence.MessageSequenceAllocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecentMessageBufferTest {
+
+    private static final String ROOM = "room";
+
+    private MeterRegistry meterRegistry;
+    private PartitionedRoomExecutor roomExecutor;
+    private MessageSequenceAllocator sequenceAllocator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        roomExecutor = new PartitionedRoomExecutor(meterRegistry);
+        ReflectionTestUtils.setField(roomExecutor, "laneCount", 2);
+        ReflectionTestUtils.setField(roomExecutor, "laneQueueCapacity", 100);
+        roomExecutor.start();
+        sequenceAllocator = mock(MessageSequenceAllocator.class);
+        when(sequenceAllocator.lastIssued(ROOM)).thenReturn(OptionalLong.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        roomExecutor.stop();
+    }
+
+    @Test
+    void servesTheNewestMessagesOnceItHoldsEnough() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        append(buffer, 1, 3);
+
+        assertThat(sequences(buffer.newest(ROOM, 2))).containsExactly(3L, 2L);
+        assertThat(sequences(buffer.newest(ROOM, 3))).containsExactly(3L, 2L, 1L);
+        //it cannot know whether older messages exist
+        assertThat(buffer.newest(ROOM, 4)).isEmpty();
+        assertThat(buffer.lastSequence(ROOM)).isEqualTo(3L);
+        assertThat(reads("hit")).isEqualTo(2.0);
+        assertThat(reads("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void keepsOnlyTheNewestCapacityMessages() {
+        RecentMessageBuffer buffer = buffer(3, 1 << 20);
+        append(buffer, 1, 5);
+
+        assertThat(sequences(buffer.newest(ROOM, 3))).containsExactly(5L, 4L, 3L);
+        assertThat(sequences(buffer.after(ROOM, 3, 10))).containsExactly(4L, 5L);
+        assertThat(sequences(buffer.after(ROOM, 3, 1))).containsExactly(4L);
+        //messages 1 and 2 were pushed out, storage has to answer
+        assertThat(buffer.after(ROOM, 1, 10)).isEmpty();
+    }
+
+    @Test
+    void seedsAnEmptyRingWhenStorageHoldsEverythingIssued() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        when(sequenceAllocator.lastIssued(ROOM)).thenReturn(OptionalLong.of(10));
+
+        seed(buffer, newestFirst(10, 8), false);
+
+        assertThat(sequences(buffer.newest(ROOM, 3))).containsExactly(10L, 9L, 8L);
+        assertThat(buffer.newest(ROOM, 4)).isEmpty();
+    }
+
+    @Test
+    void refusesASeedThatMissesQueuedWrites() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        //sequence 11 is handed out but still waiting in the write-behind queue
+        when(sequenceAllocator.lastIssued(ROOM)).thenReturn(OptionalLong.of(11));
+
+        seed(buffer, newestFirst(10, 8), false);
+
+        assertThat(buffer.lastSequence(ROOM)).isNull();
+    }
+
+    @Test
+    void aSeedReachingTheStartAnswersAnyLimit() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+
+        seed(buffer, newestFirst(2, 1), true);
+
+        assertThat(sequences(buffer.newest(ROOM, 50))).containsExactly(2L, 1L);
+        assertThat(sequences(buffer.after(ROOM, 0, 50))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void extendsARingWithOlderRowsThatJoinUp() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        append(buffer, 11, 12);
+
+        seed(buffer, newestFirst(11, 8), false);
+
+        assertThat(sequences(buffer.newest(ROOM, 5))).containsExactly(12L, 11L, 10L, 9L, 8L);
+    }
+
+    @Test
+    void ignoresOlderRowsThatLeaveAHole() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        append(buffer, 11, 12);
+
+        seed(buffer, newestFirst(9, 7), false);
+
+        assertThat(buffer.newest(ROOM, 3)).isEmpty();
+        assertThat(sequences(buffer.newest(ROOM, 2))).containsExactly(12L, 11L);
+    }
+
+    @Test
+    void anInvalidatedRingStartsOverAtTheNextAppend() {
+        RecentMessageBuffer buffer = buffer(5, 1 << 20);
+        append(buffer, 1, 3);
+
+        buffer.invalidate(ROOM);
+        assertThat(buffer.lastSequence(ROOM)).isNull();
+
+        buffer.append(message(ROOM, 5));
+        assertThat(sequences(buffer.newest(ROOM, 1))).containsExactly(5L);
+        assertThat(buffer.after(ROOM, 3, 10)).isEmpty();
+    }
+
+    @Test
+    void evictsRingsBeyondTheByteBudget() throws InterruptedException {
+        //a full ring of three short messages weighs a few hundred bytes
+        RecentMessageBuffer buffer = buffer(3, 2_000);
+        List<String> rooms = IntStream.range(0, 50).mapToObj(i -> "room-" + i).toList();
+        for (String roomId : rooms) {
+            for (int sequence = 1; sequence <= 3; sequence++) {
+                buffer.append(message(roomId, sequence));
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long kept;
+        do {
+            Thread.sleep(10);
+            kept = rooms.stream().filter(roomId -> buffer.lastSequence(roomId) != null).count();
+        } while (kept > 10 && System.nanoTime() < deadline);
+        assertThat(kept).isBetween(1L, 10L);
+    }
+
+    @Test
+    void isOffOutsideSingleNodeMode() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(roomExecutor, sequenceAllocator, meterRegistry,
+                5, 1 << 20, 900, "redis");
+        append(buffer, 1, 3);
+
+        assertThat(buffer.lastSequence(ROOM)).isNull();
+        assertThat(buffer.newest(ROOM, 1)).isEmpty();
+    }
+
+    private RecentMessageBuffer buffer(int capacity, long maxBytes) {
+        return new RecentMessageBuffer(roomExecutor, sequenceAllocator, meterRegistry, capacity, maxBytes, 900, "none");
+    }
+
+    private void append(RecentMessageBuffer buffer, long from, long to) {
+        for (long sequence = from; sequence <= to; sequence++) {
+            buffer.append(message(ROOM, sequence));
+        }
+    }
+
+    //seeding runs on the room's lane, a task queued behind it sees the result
+    private void seed(RecentMessageBuffer buffer, List<Message> newestFirst, boolean reachedStart) {
+        buffer.seed(ROOM, newestFirst, reachedStart);
+        roomExecutor.call(ROOM, () -> null);
+    }
+
+    private double reads(String result) {
+        return meterRegistry.get("chat.history.recent.reads").tag("result", result).counter().count();
+    }
+
+    private static List<Message> newestFirst(long newest, long oldest) {
+        List<Message> messages = new ArrayList<>();
+        for (long sequence = newest; sequence >= oldest; sequence--) {
+            messages.add(message(ROOM, sequence));
+        }
+        return messages;
+    }
+
+    private static Message message(String roomId, long sequence) {
+        Message message = new Message("alice", "m" + sequence);
+        message.setRoomId(roomId);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    private static List<Long> sequences(Optional<List<Message>> messages) {
+        assertThat(messages).isPresent();
+        return messages.get().stream().map(Message::getSequence).toList();
+    }
+}
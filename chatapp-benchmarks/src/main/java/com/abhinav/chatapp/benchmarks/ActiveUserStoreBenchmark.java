@@ -0,0 +1,103 @@
+package com.abhinav.chatapp.benchmarks;
+
+import com.abhinav.chatapp.chatapp_backend.playload.PresenceSnapshot;
+import com.abhinav.chatapp.chatapp_backend.utils.ActiveUserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presence bookkeeping with one large room of {@code users} subscribed sessions.
+ * Broadcasts go through a real SimpMessagingTemplate with the Jackson converter
+ * into a channel that only counts bytes, so delta serialization is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActiveUserStoreBenchmark {
+
+    private static final String ROOM = "/topic/room/lobby";
+    private static final int BURST = 100;
+
+    @Param({"1000", "10000", "100000"})
+    private int users;
+
+    private final AtomicLong publishedBytes = new AtomicLong();
+    private ActiveUserStore store;
+    private ObjectMapper objectMapper;
+    private long nextSession;
+
+    @Setup
+    public void setUp() {
+        MessageChannel countingChannel = (message, timeout) -> {
+            publishedBytes.addAndGet(((byte[]) message.getPayload()).length);
+            return true;
+        };
+        SimpMessagingTemplate template = new SimpMessagingTemplate(countingChannel);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+
+        store = new ActiveUserStore(template, new SimpleMeterRegistry(), 1000);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        for (int i = 0; i < users; i++) {
+            store.sessionConnected("s" + i, "user" + i + "@example.com");
+            store.subscribed("s" + i, "sub-0", ROOM);
+        }
+        store.broadcast();
+        nextSession = users;
+    }
+
+    //one session connecting, joining the room, leaving and disconnecting
+    @Benchmark
+    public int sessionChurn() {
+        String sessionId = "s" + nextSession++;
+        store.sessionConnected(sessionId, sessionId + "@example.com");
+        store.subscribed(sessionId, "sub-0", ROOM);
+        store.unsubscribed(sessionId, "sub-0");
+        store.sessionDisconnected(sessionId);
+        return store.getSessionCount();
+    }
+
+    //BURST users join, one coalesced delta goes out, they leave, another delta goes out
+    @Benchmark
+    public long joinLeaveBroadcast() {
+        long base = nextSession;
+        nextSession += BURST;
+        for (long i = base; i < base + BURST; i++) {
+            store.sessionConnected("s" + i, "burst" + i + "@example.com");
+            store.subscribed("s" + i, "sub-0", ROOM);
+        }
+        store.broadcast();
+        for (long i = base; i < base + BURST; i++) {
+            store.sessionDisconnected("s" + i);
+        }
+        store.broadcast();
+        return publishedBytes.get();
+    }
+
+    //what a subscriber to /app/room/{roomId}/presence receives
+    @Benchmark
+    public byte[] snapshotJson() throws Exception {
+        PresenceSnapshot snapshot = store.roomSnapshot("lobby");
+        return objectMapper.writeValueAsBytes(snapshot);
+    }
+}
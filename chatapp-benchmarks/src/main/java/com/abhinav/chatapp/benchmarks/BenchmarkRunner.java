@@ -0,0 +1,48 @@
+package com.abhinav.chatapp.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line and, unless
+ * {@code -rf}/{@code -rff} are given, writes JSON results to
+ * {@code target/jmh-results.json} so runs can be diffed or fed to a JMH visualizer.
+ * {@code -l}, {@code -lp} and {@code -h} behave as they do with the stock JMH main.
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT_FILE = "target/jmh-results.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        if (commandLine.shouldList()) {
+            new Runner(commandLine).list();
+            return;
+        }
+        if (commandLine.shouldListWithParams()) {
+            new Runner(commandLine).listWithParams(commandLine);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getResultFormat().hasValue() || commandLine.getResult().hasValue()) {
+            new Runner(options.build()).run();
+            return;
+        }
+        //relative to the working directory, which has no target/ when run from the repository root
+        Files.createDirectories(Path.of(DEFAULT_RESULT_FILE).toAbsolutePath().getParent());
+        new Runner(options
+                .resultFormat(ResultFormatType.JSON)
+                .result(DEFAULT_RESULT_FILE)
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.abhinav.chatapp.benchmarks;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository fakes for the benchmarks, built as dynamic proxies so only the query
+ * methods a benchmark touches need an implementation; anything else throws.
+ * Messages are held per room in sequence order (sequence n at index n - 1), and the
+ * derived queries are answered by slicing that list the way Mongo would return them.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static RoomRepository rooms(Map<String, Room> rooms) {
+        return proxy(RoomRepository.class, (method, args) -> switch (method) {
+            case "findByRoomId" -> rooms.get((String) args[0]);
+            case "existsByRoomId" -> rooms.containsKey((String) args[0]);
+            default -> unsupported(method);
+        });
+    }
+
+    static MessageRepository messages(Map<String, List<Message>> history) {
+        return proxy(MessageRepository.class, (method, args) -> {
+            List<Message> room = history.getOrDefault((String) args[0], List.of());
+            return switch (method) {
+                case "findByRoomIdOrderBySequenceDesc" -> {
+                    Pageable page = (Pageable) args[1];
+                    yield descending(room, room.size() - 1 - (int) page.getOffset(), page.getPageSize());
+                }
+                case "findByRoomIdAndSequenceLessThanOrderBySequenceDesc" ->
+                        descending(room, indexOf((long) args[1]) - 1, ((Pageable) args[2]).getPageSize());
+                case "findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc" ->
+                        ascending(room, indexOf((long) args[1]) + 1, ((Pageable) args[2]).getPageSize());
+                default -> unsupported(method);
+            };
+        });
+    }
+
+    static List<Message> history(String roomId, int size) {
+        List<Message> messages = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Message message = new Message("user" + (i % 50) + "@example.com", "message number " + i);
+            message.setRoomId(roomId);
+            message.setSequence(i);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static int indexOf(long sequence) {
+        return (int) sequence - 1;
+    }
+
+    private static List<Message> descending(List<Message> room, int from, int limit) {
+        List<Message> page = new ArrayList<>(limit);
+        for (int i = Math.min(from, room.size() - 1); i >= 0 && page.size() < limit; i--) {
+            page.add(room.get(i));
+        }
+        return page;
+    }
+
+    private static List<Message> ascending(List<Message> room, int from, int limit) {
+        List<Message> page = new ArrayList<>(limit);
+        for (int i = Math.max(from, 0); i < room.size() && page.size() < limit; i++) {
+            page.add(room.get(i));
+        }
+        return page;
+    }
+
+    private static Object unsupported(String method) {
+        throw new UnsupportedOperationException(method + " is not faked");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " (in memory)";
+                };
+            }
+            return handler.handle(method.getName(), args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+}
@@ -0,0 +1,59 @@
+package com.abhinav.chatapp.benchmarks;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+//what the broker converter does for every chat frame
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageJsonBenchmark {
+
+    @Param({"32", "512", "4096"})
+    private int contentLength;
+
+    private ObjectMapper objectMapper;
+    private Message message;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        //same defaults Spring Boot applies to its ObjectMapper (java.time support, ISO dates)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        message = new Message("bench@example.com", "x".repeat(contentLength));
+        message.setId("64f0c0ffee0000000000beef");
+        message.setRoomId("general");
+        message.setSequence(123_456L);
+        message.setTimeStamp(LocalDateTime.now());
+        json = objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Message deserialize() throws Exception {
+        return objectMapper.readValue(json, Message.class);
+    }
+}
@@ -0,0 +1,117 @@
+package com.abhinav.chatapp.benchmarks;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.metrics.ChatMetrics;
+import com.abhinav.chatapp.chatapp_backend.persistence.MessageSequenceAllocator;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageHistoryResponse;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.services.RoomService;
+import com.abhinav.chatapp.chatapp_backend.utils.PartitionedRoomExecutor;
+import com.abhinav.chatapp.chatapp_backend.utils.RecentMessageBuffer;
+import com.abhinav.chatapp.chatapp_backend.utils.RoomMetadataCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RoomService page and cursor reads over one room with {@code historySize} messages,
+ * against in-memory repositories. This measures the service side (slicing, reversing,
+ * cursor bookkeeping, metrics); the database cost of deep offsets is not modelled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final String ROOM_ID = "general";
+
+    @Param({"1000", "100000", "1000000"})
+    private int historySize;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    //0 reads every page from the repository, otherwise the newest pages come from the recent message buffer
+    @Param({"0", "200"})
+    private int recentCapacity;
+
+    private RoomService roomService;
+    private int middlePage;
+    private long middleSequence;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Room room = new Room();
+        room.setId("room-1");
+        room.setRoomId(ROOM_ID);
+
+        RoomRepository roomRepository = InMemoryRepositories.rooms(Map.of(ROOM_ID, room));
+        List<Message> messages = InMemoryRepositories.history(ROOM_ID, historySize);
+        MessageRepository messageRepository = InMemoryRepositories.messages(Map.of(ROOM_ID, messages));
+        PartitionedRoomExecutor roomExecutor = new PartitionedRoomExecutor(meterRegistry);
+
+        //filled the way sends fill it; at 200 every newest read is a hit, so nothing needs the (unstarted) lanes
+        RecentMessageBuffer recentMessages = new RecentMessageBuffer(roomExecutor,
+                new MessageSequenceAllocator(messageRepository), meterRegistry, recentCapacity, 64L << 20, 900, "none");
+        messages.subList(Math.max(0, messages.size() - recentCapacity), messages.size()).forEach(recentMessages::append);
+
+        //reads never touch the user, membership repositories or the room lanes
+        roomService = new RoomService(
+                roomRepository,
+                null,
+                messageRepository,
+                roomExecutor,
+                new RoomMetadataCache(roomRepository, meterRegistry, 1000, 300),
+                null,
+                new ChatMetrics(meterRegistry),
+                recentMessages
+        );
+        middlePage = historySize / pageSize / 2;
+        middleSequence = historySize / 2;
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Message>> newestPage() {
+        return roomService.getPaginatedMessages(ROOM_ID, 0, pageSize);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<Message>> middlePageByOffset() {
+        return roomService.getPaginatedMessages(ROOM_ID, middlePage, pageSize);
+    }
+
+    @Benchmark
+    public ResponseEntity<MessageHistoryResponse> newestHistory() {
+        return roomService.getMessageHistory(ROOM_ID, null, null, pageSize);
+    }
+
+    @Benchmark
+    public ResponseEntity<MessageHistoryResponse> olderThanCursor() {
+        return roomService.getMessageHistory(ROOM_ID, middleSequence, null, pageSize);
+    }
+
+    @Benchmark
+    public ResponseEntity<MessageHistoryResponse> newerThanCursor() {
+        return roomService.getMessageHistory(ROOM_ID, null, middleSequence, pageSize);
+    }
+}
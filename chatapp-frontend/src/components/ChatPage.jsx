@@ -3,7 +3,6 @@ import { MdAttachFile, MdSend, MdLogout, MdPerson, MdRoom } from "react-icons/md
 import useChatContext from "../context/ChatContext";
 import { useNavigate, useParams } from "react-router";
 import toast from "react-hot-toast";
-import { getMessagess } from "../services/RoomService";
 import { timeAgo } from "../config/helper";
 import { useAuth } from "../context/AuthContext";
 import Navigation from "./Navigation";
@@ -11,6 +10,13 @@ import websocketService from "../services/websocketService";
 
 import { LogOut, User, Settings, MessageSquare, Send, Slash, ChevronsRight, Info, Zap } from 'lucide-react';
 
+// Messages keyed by their room sequence, so a snapshot and live frames can overlap without duplicates
+const mergeBySequence = (current, incoming) => {
+  const bySequence = new Map(current.map((message) => [message.sequence, message]));
+  incoming.forEach((message) => bySequence.set(message.sequence, message));
+  return [...bySequence.values()].sort((a, b) => a.sequence - b.sequence);
+};
+
 const ChatPage = () => {
   const { roomId: urlRoomId } = useParams();
   const { user } = useAuth();
@@ -45,23 +51,6 @@ const ChatPage = () => {
     }
   }, [currentRoomId, connected, user]);
 
-  useEffect(() => {
-    async function loadMessages() {
-      try {
-        setIsConnecting(true);
-        const messages = await getMessagess(currentRoomId);
-        setMessages(messages);
-        setIsConnecting(false);
-      } catch (error) {
-        setIsConnecting(false);
-        console.error("Error loading messages:", error);
-      }
-    }
-    if (connected && currentRoomId) {
-      loadMessages();
-    }
-  }, [currentRoomId, connected]);
-
   useEffect(() => {
     if (chatBoxRef.current) {
       chatBoxRef.current.scrollTo({
@@ -77,18 +66,26 @@ const ChatPage = () => {
     if (connected && currentRoomId) {
       const token = localStorage.getItem("token");
       console.log("Token:", token);
+      // Until the room snapshot arrives on the subscription
+      setIsConnecting(true);
       // Connect to WebSocket using the service
       websocketService.connect(token)
         .then(() => {
           console.log("Connected:", connected);
           toast.success("Connected to chat!");
           
-          // Subscribe to room messages
-          const messageHandler = (messageData) => {
+          // Subscribe to room messages; the first frame is the room snapshot
+          const messageHandler = (messageData, isSnapshot) => {
+            if (isSnapshot) {
+              // A delta replays what a resumed subscription missed; a full snapshot replaces the list
+              setMessages((prev) => mergeBySequence(messageData.delta ? prev : [], messageData.messages));
+              setIsConnecting(false);
+              return;
+            }
             console.log("Received message via service:", messageData);
-            const messageId = `${messageData.sender}-${messageData.timeStamp || messageData.timestamp || Date.now()}`;
+            const messageId = `${messageData.sequence}`;
             
-            setMessages((prev) => [...prev, messageData]);
+            setMessages((prev) => mergeBySequence(prev, [messageData]));
             setNewMessageIds((prev) => new Set([...prev, messageId]));
             
             // Remove animation class after animation completes
@@ -105,6 +102,7 @@ const ChatPage = () => {
         })
         .catch((error) => {
           console.error("WebSocket connection error via service:", error);
+          setIsConnecting(false);
           toast.error("Failed to connect to chat");
         });
     }
@@ -282,7 +280,7 @@ const ChatPage = () => {
             </div>
           ) : (
             messages.map((message, index) => {
-              const messageId = `${message.sender}-${message.timeStamp || message.timestamp || index}`;
+              const messageId = `${message.sequence}`;
               const isNewMessage = newMessageIds.has(messageId);
               return (
                 <MessageBubble
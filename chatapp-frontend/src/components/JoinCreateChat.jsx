@@ -122,10 +122,9 @@ const JoinCreateChat = () => {
   async function getRooms() {
     setLoadingRooms(true);
     try {
-      const result = await roomService.getAllRooms();
+      const result = await roomService.getRoomSummaries({ size: 50 });
       if (result.success) {
-        console.log(result.data);
-        setRooms(result.data);
+        setRooms(result.data.rooms);
         setShowSidebar(true);
       } else {
         toast.error(result.error);
@@ -231,7 +230,7 @@ const JoinCreateChat = () => {
                         {room.roomId}
                       </h3>
                       <p className="text-sm text-gray-400">
-                        {room.participants ? Object.keys(room.participants).length : 0} users
+                        {room.memberCount ?? 0} users
                       </p>
                     </div>
                   </div>
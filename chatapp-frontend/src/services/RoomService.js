@@ -29,6 +29,21 @@ export const roomService = {
     }
   },
 
+  // Get room summaries (no participants or messages); mine: true for the caller's rooms only
+  async getRoomSummaries({ mine = false, page = 0, size = 20 } = {}) {
+    try {
+      const response = await httpClient.get(`/api/v1/rooms/summaries`, {
+        params: { mine, page, size }
+      });
+      return { success: true, data: response.data };
+    } catch (error) {
+      return { 
+        success: false, 
+        error: error.response?.data || 'Failed to fetch rooms' 
+      };
+    }
+  },
+
   // Join room
   async joinRoom(roomId, userId) {
     try {
@@ -94,6 +109,21 @@ export const roomService = {
         error: error.response?.data || 'Failed to fetch messages' 
       };
     }
+  },
+
+  // Get history by cursor: pass nextCursor back as `before` for older messages
+  async getHistory(roomId, { before, after, limit = 50 } = {}) {
+    try {
+      const response = await httpClient.get(`/api/v1/rooms/${roomId}/history`, {
+        params: { before, after, limit }
+      });
+      return { success: true, data: response.data };
+    } catch (error) {
+      return { 
+        success: false, 
+        error: error.response?.data || 'Failed to fetch history' 
+      };
+    }
   }
 };
 
@@ -10,6 +10,21 @@ class WebSocketService {
     this.messageHandlers = new Map();
     this.connectionAttempts = 0;
     this.maxRetries = 3;
+    // Per room: the sequence every earlier message has been seen up to, and live messages
+    // that arrived ahead of it (keyed by their previousSequence)
+    this.lastSequences = new Map();
+    this.aheadOfSequence = new Map();
+    this.gapTimers = new Map();
+    this.gapGraceMs = 1000;
+    // Sends waiting for their ack, by clientMessageId; retried with the same id, which the
+    // server deduplicates
+    this.pendingSends = new Map();
+    this.ackTimeoutMs = 5000;
+    this.maxSendAttempts = 3;
+    // After a rate-limit ERROR: no sends before sendResumeAt, then pending sends go out spaced
+    this.sendBackoffMs = 0;
+    this.sendResumeAt = 0;
+    this.sendSpacingMs = 250;
   }
 
   // Connect to WebSocket
@@ -21,11 +36,9 @@ class WebSocketService {
           resolve();
           return;
         }
-        // Use SockJS for better compatibility
-        const socket = new SockJS(`${baseURL}/ws?token=${token}`);
-        console.log("Socket:", socket);
+        // Use SockJS for better compatibility; a fresh socket for every (re)connect
         this.stompClient = new Client({
-          webSocketFactory: () => socket,
+          webSocketFactory: () => new SockJS(`${baseURL}/ws?token=${token}`),
           connectHeaders: {
             'Authorization': `Bearer ${token}`
           },
@@ -33,6 +46,10 @@ class WebSocketService {
             this.connected = true;
             this.connectionAttempts = 0;
             console.log('WebSocket connected successfully');
+            this.stompClient.subscribe('/user/queue/acks', (message) => this.handleAck(message));
+            // After an automatic reconnect, pick every room up where it left off
+            Array.from(this.messageHandlers.keys()).forEach((roomId) => this.resumeRoom(roomId));
+            this.flushPendingSends();
             resolve();
           },
           onDisconnect: () => {
@@ -40,8 +57,21 @@ class WebSocketService {
             console.log('WebSocket disconnected');
           },
           onStompError: (error) => {
+            // The server closes the session after a rate-limit ERROR; the client reconnects by
+            // itself, and pending sends wait out a growing backoff instead of all going out at once
+            if (error.headers?.message?.startsWith('Rate limit exceeded')) {
+              console.warn('Send throttled:', error.headers.message);
+              this.connected = false;
+              this.sendBackoffMs = Math.min(Math.max(this.sendBackoffMs * 2, 1000), 30000);
+              this.sendResumeAt = Date.now() + this.sendBackoffMs;
+              return;
+            }
             console.error('STOMP error:', error);
             this.connected = false;
+            // Once connected the client reconnects by itself (reconnectDelay)
+            if (this.messageHandlers.size > 0) {
+              return;
+            }
             this.connectionAttempts++;
             
             if (this.connectionAttempts < this.maxRetries) {
@@ -56,6 +86,10 @@ class WebSocketService {
           onWebSocketError: (error) => {
             console.error('WebSocket error:', error);
             this.connected = false;
+            // Once connected the client reconnects by itself (reconnectDelay)
+            if (this.messageHandlers.size > 0) {
+              return;
+            }
             this.connectionAttempts++;
             
             if (this.connectionAttempts < this.maxRetries) {
@@ -84,28 +118,39 @@ class WebSocketService {
       this.connected = false;
       this.subscriptions.clear();
       this.messageHandlers.clear();
+      this.lastSequences.clear();
+      this.aheadOfSequence.clear();
+      this.gapTimers.forEach((timer) => clearTimeout(timer));
+      this.gapTimers.clear();
+      this.pendingSends.forEach((pending) => clearTimeout(pending.timer));
+      this.pendingSends.clear();
       this.connectionAttempts = 0;
       console.log('WebSocket disconnected');
     }
   }
 
-  // Subscribe to room messages
-  subscribeToRoom(roomId, messageHandler) {
+  // Subscribe to room messages; the first frame is a snapshot ({ messages, watermark, hasMore, delta }),
+  // the handler gets (data, isSnapshot). With a last seen sequence the server replays only what was
+  // missed (delta: true), or sends a full snapshot when too much was missed.
+  subscribeToRoom(roomId, messageHandler, lastSequence = null) {
     if (!this.connected) {
       console.error('WebSocket not connected');
       return false;
     }
 
     try {
+      const headers = lastSequence != null ? { 'last-sequence': String(lastSequence) } : {};
       const subscription = this.stompClient.subscribe(`/topic/room/${roomId}`, (message) => {
         try {
           const messageData = JSON.parse(message.body);
           console.log('Received message:', messageData);
-          messageHandler(messageData);
+          const isSnapshot = message.headers.snapshot === 'true';
+          this.trackSequence(roomId, messageData, isSnapshot);
+          messageHandler(messageData, isSnapshot);
         } catch (error) {
           console.error('Error parsing message:', error);
         }
-      });
+      }, headers);
 
       this.subscriptions.set(roomId, subscription);
       this.messageHandlers.set(roomId, messageHandler);
@@ -117,6 +162,71 @@ class WebSocketService {
     }
   }
 
+  // Follows the room's sequence; a live message whose previousSequence was never seen means a
+  // broadcast was missed, and the room is resumed unless it turns up within the grace period
+  trackSequence(roomId, data, isSnapshot) {
+    if (isSnapshot) {
+      this.lastSequences.set(roomId, data.watermark);
+      this.aheadOfSequence.set(roomId, new Map());
+      this.clearGap(roomId);
+      return;
+    }
+    const last = this.lastSequences.get(roomId);
+    if (last == null || data.sequence <= last) {
+      return;
+    }
+    const ahead = this.aheadOfSequence.get(roomId) || new Map();
+    this.aheadOfSequence.set(roomId, ahead);
+    if (data.previousSequence != null && data.previousSequence > last) {
+      ahead.set(data.previousSequence, data.sequence);
+      if (!this.gapTimers.has(roomId)) {
+        this.gapTimers.set(roomId, setTimeout(() => {
+          this.gapTimers.delete(roomId);
+          if (ahead.size > 0) {
+            console.log(`Missed messages in room ${roomId}, resuming after ${this.lastSequences.get(roomId)}`);
+            this.resumeRoom(roomId);
+          }
+        }, this.gapGraceMs));
+      }
+      return;
+    }
+    let next = data.sequence;
+    while (ahead.has(next)) {
+      const following = ahead.get(next);
+      ahead.delete(next);
+      next = following;
+    }
+    this.lastSequences.set(roomId, next);
+    if (ahead.size === 0) {
+      this.clearGap(roomId);
+    }
+  }
+
+  clearGap(roomId) {
+    const timer = this.gapTimers.get(roomId);
+    if (timer) {
+      clearTimeout(timer);
+      this.gapTimers.delete(roomId);
+    }
+  }
+
+  // Re-subscribe from the last seen sequence, the server replays only the missing range
+  resumeRoom(roomId) {
+    const handler = this.messageHandlers.get(roomId);
+    if (!handler || !this.connected) {
+      return;
+    }
+    const subscription = this.subscriptions.get(roomId);
+    if (subscription) {
+      try {
+        subscription.unsubscribe();
+      } catch (error) {
+        // the old subscription died with the previous connection
+      }
+    }
+    this.subscribeToRoom(roomId, handler, this.lastSequences.get(roomId));
+  }
+
   // Unsubscribe from room messages
   unsubscribeFromRoom(roomId) {
     const subscription = this.subscriptions.get(roomId);
@@ -125,6 +235,9 @@ class WebSocketService {
         subscription.unsubscribe();
         this.subscriptions.delete(roomId);
         this.messageHandlers.delete(roomId);
+        this.lastSequences.delete(roomId);
+        this.aheadOfSequence.delete(roomId);
+        this.clearGap(roomId);
         console.log(`Unsubscribed from room: ${roomId}`);
       } catch (error) {
         console.error('Error unsubscribing from room:', error);
@@ -132,23 +245,75 @@ class WebSocketService {
     }
   }
 
-  // Send message to room
+  // Send message to room; resent with the same clientMessageId until the server acks it
   sendMessage(roomId, messageData) {
     if (!this.connected) {
       console.error('WebSocket not connected');
       return false;
     }
 
+    const clientMessageId = messageData.clientMessageId || crypto.randomUUID();
+    this.pendingSends.set(clientMessageId, {
+      roomId,
+      body: JSON.stringify({ ...messageData, clientMessageId }),
+      attempts: 0,
+      timer: null,
+    });
+    return this.publishPending(clientMessageId);
+  }
+
+  // Resend what is still unacked after a reconnect, once any throttling backoff has passed
+  flushPendingSends() {
+    const delay = Math.max(0, this.sendResumeAt - Date.now());
+    Array.from(this.pendingSends.entries()).forEach(([clientMessageId, pending], i) => {
+      clearTimeout(pending.timer);
+      pending.timer = setTimeout(() => this.publishPending(clientMessageId), delay + i * this.sendSpacingMs);
+    });
+  }
+
+  publishPending(clientMessageId) {
+    const pending = this.pendingSends.get(clientMessageId);
+    if (!pending || !this.connected) {
+      return false;
+    }
+    if (Date.now() < this.sendResumeAt) {
+      clearTimeout(pending.timer);
+      pending.timer = setTimeout(() => this.publishPending(clientMessageId), this.sendResumeAt - Date.now());
+      return true;
+    }
+    clearTimeout(pending.timer);
+    pending.attempts++;
     try {
       this.stompClient.publish({
-        destination: `/app/sendMessage/${roomId}`,
-        body: JSON.stringify(messageData)
+        destination: `/app/sendMessage/${pending.roomId}`,
+        body: pending.body
       });
-      console.log(`Message sent to room: ${roomId}`, messageData);
-      return true;
+      console.log(`Message sent to room: ${pending.roomId} (attempt ${pending.attempts})`);
     } catch (error) {
       console.error('Error sending message:', error);
-      return false;
+    }
+    pending.timer = setTimeout(() => {
+      if (pending.attempts < this.maxSendAttempts) {
+        this.publishPending(clientMessageId);
+      } else {
+        console.error(`No ack for message ${clientMessageId}, giving up`);
+        this.pendingSends.delete(clientMessageId);
+      }
+    }, this.ackTimeoutMs);
+    return true;
+  }
+
+  handleAck(message) {
+    try {
+      const { clientMessageId } = JSON.parse(message.body);
+      const pending = this.pendingSends.get(clientMessageId);
+      if (pending) {
+        clearTimeout(pending.timer);
+        this.pendingSends.delete(clientMessageId);
+      }
+      this.sendBackoffMs = 0;
+    } catch (error) {
+      console.error('Error parsing ack:', error);
     }
   }
 
@@ -0,0 +1,337 @@
+package com.abhinav.chatapp.chatapp_backend.loadgen;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.playload.MessageRequest;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.abhinav.chatapp.chatapp_backend.security.JwtUtil;
+import com.abhinav.chatapp.chatapp_backend.services.RoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process capacity test for the STOMP path, enabled by the loadgen profile (usually
+ * together with inmemory). Once the server is up it seeds one user per session and the
+ * rooms, opens the sessions against its own port, sends at a fixed total rate spread
+ * round robin over the sessions and times every message until its sender receives the
+ * broadcast. Throughput and latency percentiles are logged when the run ends; messages
+ * sent during the warmup are delivered but not measured.
+ */
+@Component
+@Profile("loadgen")
+@Slf4j
+public class StompLoadGenerator {
+
+    private static final String CONTENT_PREFIX = "lg:";
+
+    private final UserRepository userRepository;
+    private final RoomRepository roomRepository;
+    private final RoomService roomService;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${app.loadgen.sessions:1000}")
+    private int sessions;
+
+    @Value("${app.loadgen.rooms:100}")
+    private int rooms;
+
+    //messages per second over all sessions
+    @Value("${app.loadgen.rate:2000}")
+    private int rate;
+
+    @Value("${app.loadgen.duration-seconds:60}")
+    private int durationSeconds;
+
+    @Value("${app.loadgen.warmup-seconds:10}")
+    private int warmupSeconds;
+
+    //wait for late broadcasts after the last send
+    @Value("${app.loadgen.drain-seconds:5}")
+    private int drainSeconds;
+
+    @Value("${app.loadgen.connect-concurrency:64}")
+    private int connectConcurrency;
+
+    @Value("${app.loadgen.connect-timeout-seconds:60}")
+    private int connectTimeoutSeconds;
+
+    @Value("${app.loadgen.exit-on-finish:true}")
+    private boolean exitOnFinish;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder echoed = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private volatile long measureFromNanos = Long.MAX_VALUE;
+    private Timer latency;
+
+    public StompLoadGenerator(UserRepository userRepository,
+                              RoomRepository roomRepository,
+                              RoomService roomService,
+                              JwtUtil jwtUtil,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              ConfigurableApplicationContext context) {
+        this.userRepository = userRepository;
+        this.roomRepository = roomRepository;
+        this.roomService = roomService;
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.context = context;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int port = context.getEnvironment().getProperty("local.server.port", Integer.class, 8080);
+        Thread runner = new Thread(() -> run(port), "loadgen");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    private void run(int port) {
+        int exitCode = 0;
+        try {
+            //percentiles over the whole run rather than the default sliding two minutes
+            latency = Timer.builder("loadgen.echo.latency")
+                    .description("Time from a load generator send until its sender receives the broadcast")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .distributionStatisticExpiry(Duration.ofSeconds(warmupSeconds + durationSeconds + drainSeconds + 60L))
+                    .distributionStatisticBufferLength(1)
+                    .register(meterRegistry);
+
+            WebSocketStompClient stompClient = stompClient();
+            List<Client> clients = connect(stompClient, port, seed());
+            if (clients.isEmpty()) {
+                throw new RuntimeException("No load generator session could connect");
+            }
+            drive(clients);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(drainSeconds));
+            report(clients.size());
+            clients.forEach(client -> client.session.disconnect());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            exitCode = 1;
+        } catch (Exception ex) {
+            log.error("Load generator failed", ex);
+            exitCode = 1;
+        }
+        if (exitOnFinish) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(context, () -> code));
+        }
+    }
+
+    //one user per session, sessions are spread round robin over the rooms
+    private List<Client> seed() {
+        List<Client> clients = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            String email = "loadgen-" + i + "@loadgen.local";
+            String name = "loadgen-" + i;
+            User user = userRepository.findByEmail(email).orElseGet(() -> userRepository.save(User.builder()
+                    .name(name)
+                    .email(email)
+                    .role(Role.MEMBER)
+                    .isActive(true)
+                    .isEmailVerified(true)
+                    .createdAt(LocalDateTime.now())
+                    .build()));
+            clients.add(new Client(i, user, "loadgen-" + (i % rooms), jwtUtil.generateTokenWithExpiry(user)));
+        }
+        for (int r = 0; r < Math.min(rooms, clients.size()); r++) {
+            String roomId = "loadgen-" + r;
+            if (!roomRepository.existsByRoomId(roomId)) {
+                roomService.createRoom(roomId, clients.get(r).user.getId());
+            }
+        }
+        return clients;
+    }
+
+    private WebSocketStompClient stompClient() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(converter);
+        return stompClient;
+    }
+
+    private List<Client> connect(WebSocketStompClient stompClient, int port, List<Client> clients) throws InterruptedException {
+        //raw websocket transport of the SockJS endpoint
+        String url = "ws://localhost:" + port + "/ws/websocket?token={token}";
+        Semaphore inFlight = new Semaphore(connectConcurrency);
+        CountDownLatch done = new CountDownLatch(clients.size());
+        long started = System.nanoTime();
+        for (Client client : clients) {
+            inFlight.acquire();
+            stompClient.connectAsync(url, new WebSocketHttpHeaders(), client, client.token)
+                    .whenComplete((session, ex) -> {
+                        inFlight.release();
+                        if (ex != null) {
+                            errors.increment();
+                            log.debug("Load generator session {} failed to connect: {}", client.index, ex.getMessage());
+                        }
+                        done.countDown();
+                    });
+        }
+        if (!done.await(connectTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("Load generator stopped waiting for connections after {}s", connectTimeoutSeconds);
+        }
+        //subscriptions go out in afterConnected, give the broker a moment to register the last ones
+        Thread.sleep(1000);
+
+        List<Client> connected = clients.stream().filter(client -> client.session != null).toList();
+        log.info("Load generator connected {}/{} sessions in {} ms", connected.size(), clients.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return connected;
+    }
+
+    private void drive(List<Client> clients) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        long start = System.nanoTime();
+        measureFromNanos = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        log.info("Load generator sending {} msg/s over {} sessions for {}s after a {}s warmup",
+                rate, clients.size(), durationSeconds, warmupSeconds);
+
+        for (long k = 0; ; k++) {
+            long intended = start + k * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Client client = clients.get((int) (k % clients.size()));
+            //stamped with the scheduled time, not the actual one, so a stalled sender shows up as latency
+            MessageRequest request = new MessageRequest(CONTENT_PREFIX + client.index + ":" + intended,
+                    client.user.getEmail(), client.roomId, client.index + "-" + k);
+            try {
+                client.session.send("/app/sendMessage/" + client.roomId, request);
+                sent.increment();
+            } catch (Exception ex) {
+                errors.increment();
+            }
+        }
+    }
+
+    private void report(int connectedSessions) {
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        log.info("""
+                        Load generator finished
+                          sessions {} ({} requested) over {} rooms, target {} msg/s for {}s
+                          sent {}, echoed {} ({} msg/s measured), broadcast deliveries {}, errors {}
+                          latency ms: p50 {}, p95 {}, p99 {}, max {}, mean {}""",
+                connectedSessions, sessions, rooms, rate, durationSeconds,
+                sent.sum(), echoed.sum(), String.format("%.1f", snapshot.count() / (double) Math.max(1, durationSeconds)),
+                delivered.sum(), errors.sum(),
+                millis(percentile(snapshot, 0.5)), millis(percentile(snapshot, 0.95)), millis(percentile(snapshot, 0.99)),
+                millis(snapshot.max(TimeUnit.MILLISECONDS)), millis(snapshot.mean(TimeUnit.MILLISECONDS)));
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String millis(double value) {
+        return String.format("%.2f", value);
+    }
+
+    private final class Client extends StompSessionHandlerAdapter {
+        private final int index;
+        private final User user;
+        private final String roomId;
+        private final String token;
+        private volatile StompSession session;
+
+        private Client(int index, User user, String roomId, String token) {
+            this.index = index;
+            this.user = user;
+            this.roomId = roomId;
+            this.token = token;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe("/topic/room/" + roomId, this);
+            this.session = session;
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Message.class;
+        }
+
+        //every subscriber counts the fan-out, only the sender times its own message
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            delivered.increment();
+            String content = ((Message) payload).getContent();
+            if (content == null || !content.startsWith(CONTENT_PREFIX)) {
+                return;
+            }
+            int separator = content.indexOf(':', CONTENT_PREFIX.length());
+            if (separator < 0 || Integer.parseInt(content, CONTENT_PREFIX.length(), separator, 10) != index) {
+                return;
+            }
+            long intended = Long.parseLong(content, separator + 1, content.length(), 10);
+            echoed.increment();
+            if (intended >= measureFromNanos) {
+                latency.record(System.nanoTime() - intended, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            errors.increment();
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            errors.increment();
+            log.debug("Load generator session {} transport error: {}", index, exception.getMessage());
+        }
+    }
+}
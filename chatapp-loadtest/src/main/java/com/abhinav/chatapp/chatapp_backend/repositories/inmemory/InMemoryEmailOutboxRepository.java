@@ -0,0 +1,91 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import com.abhinav.chatapp.chatapp_backend.entities.EmailOutboxMessage;
+import com.abhinav.chatapp.chatapp_backend.enums.OutboxStatus;
+import com.abhinav.chatapp.chatapp_backend.repositories.EmailOutboxRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryEmailOutboxRepository extends InMemoryMongoRepository<EmailOutboxMessage> implements EmailOutboxRepository {
+
+    public InMemoryEmailOutboxRepository() {
+        super(EmailOutboxMessage::getId, EmailOutboxMessage::setId, InMemoryEmailOutboxRepository::copyOf);
+    }
+
+    @Override
+    public List<EmailOutboxMessage> claimDue(int limit, LocalDateTime now, Duration lease) {
+        List<String> candidates = entities.values().stream()
+                .filter(message -> isDue(message, now))
+                .sorted(Comparator.comparing(EmailOutboxMessage::getNextAttemptAt, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .map(EmailOutboxMessage::getId)
+                .toList();
+
+        List<EmailOutboxMessage> claimed = new ArrayList<>();
+        for (String id : candidates) {
+            if (claimed.size() == limit) {
+                break;
+            }
+            //re-checked inside the compute, another dispatcher may have claimed it meanwhile
+            AtomicBoolean won = new AtomicBoolean();
+            EmailOutboxMessage result = update(id, current -> {
+                if (!isDue(current, now)) {
+                    return current;
+                }
+                won.set(true);
+                EmailOutboxMessage next = copy(current);
+                next.setStatus(OutboxStatus.SENDING);
+                next.setLockedUntil(now.plus(lease));
+                return next;
+            });
+            if (won.get()) {
+                claimed.add(result);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public long expireStale(LocalDateTime now) {
+        long expired = 0;
+        for (String id : List.copyOf(entities.keySet())) {
+            AtomicBoolean changed = new AtomicBoolean();
+            update(id, current -> {
+                if (current.getStatus() != OutboxStatus.PENDING || current.getExpiresAt() == null || !current.getExpiresAt().isBefore(now)) {
+                    return current;
+                }
+                changed.set(true);
+                EmailOutboxMessage next = copy(current);
+                next.setStatus(OutboxStatus.EXPIRED);
+                return next;
+            });
+            if (changed.get()) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private static boolean isDue(EmailOutboxMessage message, LocalDateTime now) {
+        if (message.getStatus() == OutboxStatus.PENDING) {
+            return message.getNextAttemptAt() == null || !message.getNextAttemptAt().isAfter(now);
+        }
+        return message.getStatus() == OutboxStatus.SENDING
+                && message.getLockedUntil() != null && message.getLockedUntil().isBefore(now);
+    }
+
+    private static EmailOutboxMessage copyOf(EmailOutboxMessage message) {
+        EmailOutboxMessage copy = new EmailOutboxMessage();
+        BeanUtils.copyProperties(message, copy);
+        return copy;
+    }
+}
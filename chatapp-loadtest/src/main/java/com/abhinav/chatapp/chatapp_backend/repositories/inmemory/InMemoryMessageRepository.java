@@ -0,0 +1,104 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.repositories.MessageRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryMessageRepository extends InMemoryMongoRepository<Message> implements MessageRepository {
+
+    //roomId -> sequence -> message, the (roomId, sequence) unique index
+    private final Map<String, ConcurrentSkipListMap<Long, Message>> rooms = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    public InMemoryMessageRepository() {
+        super(Message::getId, Message::setId, InMemoryMessageRepository::copyOf);
+    }
+
+    @Override
+    protected void indexed(Message previous, Message stored) {
+        ConcurrentSkipListMap<Long, Message> room = rooms.computeIfAbsent(stored.getRoomId(), id -> new ConcurrentSkipListMap<>());
+        Message owner = room.putIfAbsent(stored.getSequence(), stored);
+        if (owner != null && !owner.getId().equals(stored.getId())) {
+            throw new DuplicateKeyException("Duplicate sequence " + stored.getSequence() + " in room " + stored.getRoomId());
+        }
+        room.put(stored.getSequence(), stored);
+        if (previous != null && (previous.getSequence() != stored.getSequence() || !previous.getRoomId().equals(stored.getRoomId()))) {
+            unindexed(previous);
+        }
+    }
+
+    @Override
+    protected void unindexed(Message removed) {
+        ConcurrentSkipListMap<Long, Message> room = rooms.get(removed.getRoomId());
+        if (room != null) {
+            room.remove(removed.getSequence(), removed);
+        }
+    }
+
+    @Override
+    public List<Message> findByRoomIdOrderBySequenceDesc(String roomId, Pageable pageable) {
+        return page(room(roomId).descendingMap(), pageable);
+    }
+
+    @Override
+    public List<Message> findByRoomIdAndSequenceLessThanOrderBySequenceDesc(String roomId, long sequence, Pageable pageable) {
+        return page(room(roomId).headMap(sequence, false).descendingMap(), pageable);
+    }
+
+    @Override
+    public List<Message> findByRoomIdAndSequenceGreaterThanOrderBySequenceAsc(String roomId, long sequence, Pageable pageable) {
+        return page(room(roomId).tailMap(sequence, false), pageable);
+    }
+
+    @Override
+    public long reserveSequences(String roomId, int count) {
+        return sequences.computeIfAbsent(roomId, id -> new AtomicLong()).addAndGet(count);
+    }
+
+    @Override
+    public void ensureSequenceAtLeast(String roomId, long sequence) {
+        sequences.computeIfAbsent(roomId, id -> new AtomicLong()).accumulateAndGet(sequence, Math::max);
+    }
+
+    @Override
+    public void insertBatch(List<Message> messages) {
+        for (Message message : messages) {
+            try {
+                insert(message);
+            } catch (DuplicateKeyException ex) {
+                //same as the Mongo store: a retried batch may hit rows that made it in before
+            }
+        }
+    }
+
+    private NavigableMap<Long, Message> room(String roomId) {
+        return rooms.getOrDefault(roomId, new ConcurrentSkipListMap<>());
+    }
+
+    private List<Message> page(NavigableMap<Long, Message> ordered, Pageable pageable) {
+        return ordered.values().stream()
+                .skip(pageable.isPaged() ? pageable.getOffset() : 0)
+                .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                .map(this::copy)
+                .toList();
+    }
+
+    private static Message copyOf(Message message) {
+        Message copy = new Message();
+        BeanUtils.copyProperties(message, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,399 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Base of the inmemory profile's repositories: the MongoRepository contract over a
+ * ConcurrentHashMap keyed by id. Entities are copied on the way in and out, like a
+ * round trip through Mongo, so callers never share instances with the store. Ids are
+ * ObjectIds, which keeps {@link #findAll()} in insertion order. Query by example
+ * compares the probe's top-level properties the way Mongo would: nulls ignored unless
+ * the matcher includes them, primitives always compared, strings by the matcher's mode
+ * and case, all or any of them.
+ * <p>
+ * Subclasses keep their secondary indexes current through {@link #indexed} and
+ * {@link #unindexed}, which run inside the per-id compute.
+ */
+public abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    protected final Map<String, T> entities = new ConcurrentHashMap<>();
+
+    private final Function<T, String> idOf;
+    private final BiConsumer<T, String> setId;
+    private final UnaryOperator<T> copier;
+
+    protected InMemoryMongoRepository(Function<T, String> idOf, BiConsumer<T, String> setId, UnaryOperator<T> copier) {
+        this.idOf = idOf;
+        this.setId = setId;
+        this.copier = copier;
+    }
+
+    //called after an entity is stored, with the previous version or null
+    protected void indexed(T previous, T stored) {
+    }
+
+    //called after an entity is removed
+    protected void unindexed(T removed) {
+    }
+
+    protected T copy(T entity) {
+        return entity == null ? null : copier.apply(entity);
+    }
+
+    //atomically replace one stored entity, the function sees and returns store-owned instances
+    protected T update(String id, UnaryOperator<T> change) {
+        return copy(entities.computeIfPresent(id, (key, current) -> {
+            T next = change.apply(current);
+            indexed(current, next);
+            return next;
+        }));
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        if (idOf.apply(entity) == null) {
+            setId.accept(entity, new ObjectId().toHexString());
+        }
+        T stored = copy(entity);
+        entities.compute(idOf.apply(entity), (id, previous) -> {
+            indexed(previous, stored);
+            return stored;
+        });
+        return entity;
+    }
+
+    @Override
+    public <S extends T> S insert(S entity) {
+        if (idOf.apply(entity) != null && entities.containsKey(idOf.apply(entity))) {
+            throw new DuplicateKeyException("Duplicate id " + idOf.apply(entity));
+        }
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        entities.forEach(entity -> inserted.add(insert(entity)));
+        return inserted;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(copy(entities.get(id)));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return entities.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return stream().toList();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return sorted(stream(), sort).toList();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(sorted(stream(), pageable.getSort()).toList(), pageable);
+    }
+
+    @Override
+    public long count() {
+        return entities.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        entities.computeIfPresent(id, (key, removed) -> {
+            unindexed(removed);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(T entity) {
+        deleteById(idOf.apply(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        entities.keySet().forEach(this::deleteById);
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return matching(example).findFirst();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return matching(example).toList();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        return sortedBy(matching(example), sort).toList();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(sortedBy(matching(example), pageable.getSort()).toList(), pageable);
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return matching(example).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return matching(example).findAny().isPresent();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ListQuery<>(findAll(example), Sort.unsorted(), 0, Function.identity()));
+    }
+
+    //copies of all entities, oldest first
+    protected Stream<T> stream() {
+        return entities.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> copy(entry.getValue()));
+    }
+
+    protected Stream<T> sorted(Stream<T> stream, Sort sort) {
+        return sortedBy(stream, sort);
+    }
+
+    //Mongo ordering for simple properties: nulls first when ascending
+    @SuppressWarnings("unchecked")
+    private static <E> Stream<E> sortedBy(Stream<E> stream, Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return stream;
+        }
+        Comparator<E> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<E> byProperty = Comparator.comparing(
+                    entity -> (Comparable<Object>) new BeanWrapperImpl(entity).getPropertyValue(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.<Comparable<Object>>naturalOrder()));
+            if (order.isDescending()) {
+                byProperty = byProperty.reversed();
+            }
+            comparator = comparator == null ? byProperty : comparator.thenComparing(byProperty);
+        }
+        return stream.sorted(comparator);
+    }
+
+    private static <E> Page<E> page(List<E> all, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends T> Stream<S> matching(Example<S> example) {
+        Class<S> type = example.getProbeType();
+        return stream()
+                .filter(type::isInstance)
+                .map(entity -> (S) entity)
+                .filter(entity -> matches(example, entity));
+    }
+
+    private static boolean matches(Example<?> example, Object candidate) {
+        ExampleMatcher matcher = example.getMatcher();
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(matcher);
+        BeanWrapper probe = new BeanWrapperImpl(example.getProbe());
+        BeanWrapper entity = new BeanWrapperImpl(candidate);
+        boolean compared = false;
+        for (PropertyDescriptor property : probe.getPropertyDescriptors()) {
+            String path = property.getName();
+            if ("class".equals(path) || !probe.isReadableProperty(path) || accessor.isIgnoredPath(path)) {
+                continue;
+            }
+            Object expected = probe.getPropertyValue(path);
+            if (expected == null && accessor.getNullHandler() == ExampleMatcher.NullHandler.IGNORE) {
+                continue;
+            }
+            compared = true;
+            boolean equal = matchesValue(accessor, path, expected, entity.getPropertyValue(path));
+            if (matcher.isAnyMatching() && equal) {
+                return true;
+            }
+            if (matcher.isAllMatching() && !equal) {
+                return false;
+            }
+        }
+        //an empty probe matches everything
+        return matcher.isAllMatching() || !compared;
+    }
+
+    private static boolean matchesValue(ExampleMatcherAccessor accessor, String path, Object expected, Object actual) {
+        if (!(expected instanceof String text) || !(actual instanceof String value)) {
+            return Objects.equals(expected, actual);
+        }
+        boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+        if (accessor.getStringMatcherForPath(path) == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile(text, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(value).find();
+        }
+        String wanted = ignoreCase ? text.toLowerCase(Locale.ROOT) : text;
+        String found = ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+        return switch (accessor.getStringMatcherForPath(path)) {
+            case STARTING -> found.startsWith(wanted);
+            case ENDING -> found.endsWith(wanted);
+            case CONTAINING -> found.contains(wanted);
+            default -> found.equals(wanted);
+        };
+    }
+
+    /**
+     * Fluent query over matches already copied out of the store. Sorting and limits apply
+     * to the source entities before {@code as} maps them; {@code project} keeps every
+     * field, a superset of what Mongo would fetch.
+     */
+    private record ListQuery<S, R>(List<S> source, Sort sort, int limit, Function<S, R> mapper)
+            implements FluentQuery.FetchableFluentQuery<R> {
+
+        private static final SpelAwareProxyProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> sortBy(Sort sort) {
+            return new ListQuery<>(source, this.sort.and(sort), limit, mapper);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> limit(int limit) {
+            return new ListQuery<>(source, sort, limit, mapper);
+        }
+
+        @Override
+        public <N> FluentQuery.FetchableFluentQuery<N> as(Class<N> resultType) {
+            return new ListQuery<>(source, sort, limit, entity -> convert(mapper.apply(entity), resultType));
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> project(Collection<String> properties) {
+            return this;
+        }
+
+        @Override
+        public R oneValue() {
+            List<R> results = all();
+            if (results.size() > 1) {
+                throw new IncorrectResultSizeDataAccessException(1, results.size());
+            }
+            return results.isEmpty() ? null : results.get(0);
+        }
+
+        @Override
+        public R firstValue() {
+            return stream().findFirst().orElse(null);
+        }
+
+        @Override
+        public List<R> all() {
+            return stream().toList();
+        }
+
+        @Override
+        public Page<R> page(Pageable pageable) {
+            Sort order = pageable.getSort().isSorted() ? sort.and(pageable.getSort()) : sort;
+            List<R> all = limited(sortedBy(source.stream(), order)).map(mapper).toList();
+            return InMemoryMongoRepository.page(all, pageable);
+        }
+
+        @Override
+        public Stream<R> stream() {
+            return limited(sortedBy(source.stream(), sort)).map(mapper);
+        }
+
+        @Override
+        public long count() {
+            return limited(source.stream()).count();
+        }
+
+        @Override
+        public boolean exists() {
+            return !source.isEmpty();
+        }
+
+        private Stream<S> limited(Stream<S> entities) {
+            return limit > 0 ? entities.limit(limit) : entities;
+        }
+
+        //the entity itself when it fits, an interface projection otherwise
+        private static <N> N convert(Object entity, Class<N> resultType) {
+            if (resultType.isInstance(entity)) {
+                return resultType.cast(entity);
+            }
+            if (resultType.isInterface()) {
+                return PROJECTIONS.createProjection(resultType, entity);
+            }
+            throw new InvalidDataAccessApiUsageException("Cannot map " + entity.getClass().getSimpleName()
+                    + " to " + resultType.getSimpleName() + ", use the entity type or an interface projection");
+        }
+    }
+}
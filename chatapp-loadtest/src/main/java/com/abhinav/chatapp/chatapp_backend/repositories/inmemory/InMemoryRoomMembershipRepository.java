@@ -0,0 +1,79 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import com.abhinav.chatapp.chatapp_backend.entities.RoomMembership;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomMembershipRepository;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryRoomMembershipRepository extends InMemoryMongoRepository<RoomMembership> implements RoomMembershipRepository {
+
+    //userId -> ids of that user's memberships
+    private final Map<String, Set<String>> byUser = new ConcurrentHashMap<>();
+
+    public InMemoryRoomMembershipRepository() {
+        super(RoomMembership::getId, RoomMembership::setId, InMemoryRoomMembershipRepository::copyOf);
+    }
+
+    @Override
+    protected void indexed(RoomMembership previous, RoomMembership stored) {
+        byUser.computeIfAbsent(stored.getUserId(), userId -> ConcurrentHashMap.newKeySet()).add(stored.getId());
+    }
+
+    @Override
+    protected void unindexed(RoomMembership removed) {
+        Set<String> ids = byUser.get(removed.getUserId());
+        if (ids != null) {
+            ids.remove(removed.getId());
+        }
+    }
+
+    @Override
+    public List<RoomMembership> findByUserId(String userId) {
+        return byUser.getOrDefault(userId, Set.of()).stream()
+                .map(entities::get)
+                .filter(membership -> membership != null)
+                .map(this::copy)
+                .toList();
+    }
+
+    //the (userId, roomId) pair is the id, which makes upserts a single compute
+    @Override
+    public void upsert(String roomId, String userId, Role role) {
+        save(new RoomMembership(key(roomId, userId), userId, roomId, role));
+    }
+
+    @Override
+    public void remove(String roomId, String userId) {
+        deleteById(key(roomId, userId));
+    }
+
+    @Override
+    public void upsertAll(Collection<RoomMembership> memberships) {
+        memberships.forEach(membership -> upsert(membership.getRoomId(), membership.getUserId(), membership.getRole()));
+    }
+
+    @Override
+    public void removeAll(String roomId, Collection<String> userIds) {
+        userIds.forEach(userId -> remove(roomId, userId));
+    }
+
+    private static String key(String roomId, String userId) {
+        return userId + "\u0000" + roomId;
+    }
+
+    private static RoomMembership copyOf(RoomMembership membership) {
+        RoomMembership copy = new RoomMembership();
+        BeanUtils.copyProperties(membership, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,129 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import com.abhinav.chatapp.chatapp_backend.entities.Message;
+import com.abhinav.chatapp.chatapp_backend.entities.Room;
+import com.abhinav.chatapp.chatapp_backend.enums.Role;
+import com.abhinav.chatapp.chatapp_backend.playload.RoomSummary;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepository;
+import com.abhinav.chatapp.chatapp_backend.repositories.RoomRepositoryCustom;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryRoomRepository extends InMemoryMongoRepository<Room> implements RoomRepository {
+
+    //roomId -> id, the unique index
+    private final Map<String, String> byRoomId = new ConcurrentHashMap<>();
+
+    public InMemoryRoomRepository() {
+        super(Room::getId, Room::setId, InMemoryRoomRepository::copyOf);
+    }
+
+    @Override
+    protected void indexed(Room previous, Room stored) {
+        if (stored.getRoomId() == null) {
+            return;
+        }
+        String owner = byRoomId.putIfAbsent(stored.getRoomId(), stored.getId());
+        if (owner != null && !owner.equals(stored.getId())) {
+            throw new DuplicateKeyException("Duplicate roomId " + stored.getRoomId());
+        }
+        if (previous != null && previous.getRoomId() != null && !previous.getRoomId().equals(stored.getRoomId())) {
+            byRoomId.remove(previous.getRoomId(), previous.getId());
+        }
+    }
+
+    @Override
+    protected void unindexed(Room removed) {
+        if (removed.getRoomId() != null) {
+            byRoomId.remove(removed.getRoomId(), removed.getId());
+        }
+    }
+
+    @Override
+    public Room findByRoomId(String roomId) {
+        String id = byRoomId.get(roomId);
+        return id != null ? copy(entities.get(id)) : null;
+    }
+
+    @Override
+    public boolean existsByRoomId(String roomId) {
+        return byRoomId.containsKey(roomId);
+    }
+
+    @Override
+    public List<RoomSummary> findSummaries(Collection<String> roomIds, long skip, int limit) {
+        //same order as the aggregation: most recent activity first, idle rooms last
+        return entities.values().stream()
+                .filter(room -> roomIds == null || roomIds.contains(room.getRoomId()))
+                .sorted(Comparator.comparing(Room::getLastActivityAt, Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(Room::getRoomId))
+                .skip(skip)
+                .limit(limit)
+                .map(room -> new RoomSummary(room.getId(), room.getRoomId(), room.getParticipants().size(),
+                        room.getLastMessagePreview(), room.getLastMessageSender(), room.getLastActivityAt()))
+                .toList();
+    }
+
+    @Override
+    public Optional<Room> updateParticipants(String roomId, Map<String, Role> roles) {
+        String id = byRoomId.get(roomId);
+        if (id == null) {
+            return Optional.empty();
+        }
+        AtomicReference<Room> before = new AtomicReference<>();
+        update(id, current -> {
+            before.set(copy(current));
+            Room next = copy(current);
+            roles.forEach((userId, role) -> {
+                if (role == null) {
+                    next.getParticipants().remove(userId);
+                } else {
+                    next.getParticipants().put(userId, role);
+                }
+            });
+            return next;
+        });
+        return Optional.ofNullable(before.get());
+    }
+
+    @Override
+    public void recordLastMessages(Collection<Message> newestPerRoom) {
+        for (Message message : newestPerRoom) {
+            String id = byRoomId.get(message.getRoomId());
+            if (id == null) {
+                continue;
+            }
+            update(id, current -> {
+                if (current.getLastMessageSequence() >= message.getSequence()) {
+                    return current;
+                }
+                Room next = copy(current);
+                next.setLastMessageSequence(message.getSequence());
+                next.setLastMessagePreview(RoomRepositoryCustom.preview(message.getContent()));
+                next.setLastMessageSender(message.getSender());
+                next.setLastActivityAt(message.getTimeStamp());
+                return next;
+            });
+        }
+    }
+
+    private static Room copyOf(Room room) {
+        Room copy = new Room();
+        BeanUtils.copyProperties(room, copy);
+        copy.setParticipants(new HashMap<>(room.getParticipants()));
+        return copy;
+    }
+}
@@ -0,0 +1,79 @@
+package com.abhinav.chatapp.chatapp_backend.repositories.inmemory;
+
+import com.abhinav.chatapp.chatapp_backend.entities.User;
+import com.abhinav.chatapp.chatapp_backend.repositories.UserRepository;
+import com.abhinav.chatapp.chatapp_backend.utils.ConnectionActivity;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryUserRepository extends InMemoryMongoRepository<User> implements UserRepository {
+
+    //email -> id, the unique index
+    private final Map<String, String> byEmail = new ConcurrentHashMap<>();
+
+    public InMemoryUserRepository() {
+        super(User::getId, User::setId, InMemoryUserRepository::copyOf);
+    }
+
+    @Override
+    protected void indexed(User previous, User stored) {
+        if (stored.getEmail() == null) {
+            return;
+        }
+        String owner = byEmail.putIfAbsent(stored.getEmail(), stored.getId());
+        if (owner != null && !owner.equals(stored.getId())) {
+            throw new DuplicateKeyException("Duplicate email " + stored.getEmail());
+        }
+        if (previous != null && previous.getEmail() != null && !previous.getEmail().equals(stored.getEmail())) {
+            byEmail.remove(previous.getEmail(), previous.getId());
+        }
+    }
+
+    @Override
+    protected void unindexed(User removed) {
+        if (removed.getEmail() != null) {
+            byEmail.remove(removed.getEmail(), removed.getId());
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        String id = byEmail.get(email);
+        return id != null ? findById(id) : Optional.empty();
+    }
+
+    @Override
+    public void recordConnectionActivity(List<ConnectionActivity> activities) {
+        for (ConnectionActivity activity : activities) {
+            String id = byEmail.get(activity.email());
+            if (id == null) {
+                continue;
+            }
+            update(id, current -> {
+                User next = copy(current);
+                next.setLastSeenAt(activity.lastSeenAt());
+                next.setActiveSessions(activity.activeSessions());
+                if (activity.connectedAt() != null) {
+                    next.setLastConnectedAt(activity.connectedAt());
+                }
+                return next;
+            });
+        }
+    }
+
+    //every field is immutable, a shallow copy is a full copy
+    private static User copyOf(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+}